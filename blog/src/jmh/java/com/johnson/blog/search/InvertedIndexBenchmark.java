@@ -0,0 +1,132 @@
+package com.johnson.blog.search;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/*
+ * Query latency of the in-process search index over a synthetic corpus.
+ *
+ *   ./gradlew :blog:jmh   (100k and 1M posts, about 4 GB of heap)
+ *
+ * Posts draw their words from a Zipf distribution over a 50k word vocabulary
+ * (title 6 words, content 120), roughly the shape of real text: a few terms
+ * appear in most posts and most terms in very few. Queries mix 1 to 3 terms
+ * sampled the same way, so they range from rare to very common terms; the
+ * common ones are the expensive case since every matching doc is scored.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class InvertedIndexBenchmark {
+  private static final int VOCABULARY = 50_000;
+  private static final int TITLE_WORDS = 6;
+  private static final int CONTENT_WORDS = 120;
+  private static final int QUERIES = 1024;
+
+  @Param({ "100000", "1000000" })
+  public int posts;
+
+  @Param({ "10" })
+  public int k;
+
+  private InvertedIndex index;
+  private String[] queries;
+  private int nextQuery;
+
+  @Setup(Level.Trial)
+  public void buildIndex() {
+    Random random = new Random(42);
+    String[] words = new String[VOCABULARY];
+    for (int i = 0; i < VOCABULARY; i++) {
+      words[i] = _word(i);
+    }
+    double[] cumulative = _zipf(VOCABULARY, 1.0);
+
+    index = new InvertedIndex(3, 0.2);
+    StringBuilder title = new StringBuilder();
+    StringBuilder content = new StringBuilder();
+    for (int post = 0; post < posts; post++) {
+      title.setLength(0);
+      content.setLength(0);
+      for (int i = 0; i < TITLE_WORDS; i++) {
+        title.append(words[_sample(cumulative, random)]).append(' ');
+      }
+      for (int i = 0; i < CONTENT_WORDS; i++) {
+        content.append(words[_sample(cumulative, random)]).append(' ');
+      }
+      index.index("post-" + post, title.toString(), content.toString(), 1);
+    }
+
+    queries = new String[QUERIES];
+    for (int i = 0; i < QUERIES; i++) {
+      int terms = 1 + random.nextInt(3);
+      StringBuilder query = new StringBuilder();
+      for (int t = 0; t < terms; t++) {
+        query.append(words[_sample(cumulative, random)]).append(' ');
+      }
+      queries[i] = query.toString();
+    }
+    System.out.printf("%n%d posts indexed, %d MB of postings%n", index.size(),
+        index.postingsSizeInBytes() / (1024 * 1024));
+  }
+
+  @Benchmark
+  public List<SearchHit> search() {
+    return index.search(_nextQuery(), k);
+  }
+
+  /// readers share the read lock, so latency should hold under concurrency
+  @Benchmark
+  @Threads(4)
+  public List<SearchHit> searchConcurrently() {
+    return index.search(_nextQuery(), k);
+  }
+
+  private String _nextQuery() {
+    // racy under @Threads on purpose: any query of the set will do
+    int i = nextQuery;
+    nextQuery = (i + 1) & (QUERIES - 1);
+    return queries[i];
+  }
+
+  /// letters only, so the tokenizer keeps each word whole
+  private static String _word(int i) {
+    StringBuilder word = new StringBuilder("w");
+    do {
+      word.append((char) ('a' + i % 26));
+      i /= 26;
+    } while (i > 0);
+    return word.toString();
+  }
+
+  private static double[] _zipf(int n, double exponent) {
+    double[] cumulative = new double[n];
+    double sum = 0;
+    for (int rank = 1; rank <= n; rank++) {
+      sum += 1 / Math.pow(rank, exponent);
+      cumulative[rank - 1] = sum;
+    }
+    for (int i = 0; i < n; i++) {
+      cumulative[i] /= sum;
+    }
+    return cumulative;
+  }
+
+  private static int _sample(double[] cumulative, Random random) {
+    int i = Arrays.binarySearch(cumulative, random.nextDouble());
+    return Math.min(i >= 0 ? i : -i - 1, cumulative.length - 1);
+  }
+}
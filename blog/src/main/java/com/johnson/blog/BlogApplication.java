@@ -6,6 +6,7 @@ import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import com.johnson.utilities.config.ConfigUtils;
 
@@ -15,6 +16,7 @@ import com.johnson.utilities.config.ConfigUtils;
 @EnableJpaRepositories(basePackages = "com.johnson.database.repository")
 @EntityScan(basePackages = "com.johnson.database.model")
 @EnableCaching
+@EnableScheduling
 public class BlogApplication {
 
 	public static void main(String[] args) {
@@ -14,12 +14,15 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
 import com.johnson.blog.service.AuthenticationService;
+import com.johnson.blog.service.JwtService;
+import com.johnson.blog.service.RateLimiterService;
 import com.johnson.utilities.dtos.BaseApiResponse;
 import com.johnson.utilities.dtos.authDtos.UserLoginResponseDto;
 import com.johnson.utilities.dtos.authDtos.UserDataResponseDto;
 import com.johnson.utilities.dtos.authDtos.UserLoginDto;
 import com.johnson.utilities.dtos.authDtos.UserRegistrationDto;
 
+import io.jsonwebtoken.JwtException;
 import jakarta.validation.Valid;
 import lombok.NonNull;
 
@@ -29,9 +32,16 @@ import lombok.NonNull;
 public class AuthController {
   @NonNull
   private final AuthenticationService authenticationService;
+  @NonNull
+  private final RateLimiterService rateLimiterService;
+  @NonNull
+  private final JwtService jwtService;
 
-  public AuthController(AuthenticationService authenticationService) {
+  public AuthController(AuthenticationService authenticationService, RateLimiterService rateLimiterService,
+      JwtService jwtService) {
     this.authenticationService = authenticationService;
+    this.rateLimiterService = rateLimiterService;
+    this.jwtService = jwtService;
   }
 
   @PostMapping("register")
@@ -43,12 +53,19 @@ public class AuthController {
   @PostMapping("login")
   public ResponseEntity<BaseApiResponse<UserLoginResponseDto>> authenticateUser(
       @Valid @RequestBody UserLoginDto userLoginDto, HttpServletRequest request, HttpServletResponse response) {
+    // throttled here, before the transactional service call takes a pool
+    // connection, so rejected calls cost no database capacity
+    rateLimiterService.acquire("login",
+        "ip:" + request.getRemoteAddr(),
+        "email:" + userLoginDto.getEmail().toLowerCase(),
+        "device:" + userLoginDto.getDeviceId());
     return authenticationService.authenticate(userLoginDto, request, response);
   }
 
   @PostMapping("refresh")
   public ResponseEntity<BaseApiResponse<Map<String, Object>>> refreshToken(HttpServletRequest request,
       HttpServletResponse response) {
+    rateLimiterService.acquire("refresh", "ip:" + request.getRemoteAddr(), _refreshDeviceSubject(request));
     return authenticationService.refreshToken(request, response);
   }
 
@@ -58,4 +75,19 @@ public class AuthController {
     return authenticationService.logoutUser(request);
   }
 
+  /// device of a valid refresh token, or null (ip bucket only) when the token
+  /// is missing or invalid; the service answers those with a 401. The
+  /// verification is cached, so the service's own check is a cache hit.
+  private String _refreshDeviceSubject(HttpServletRequest request) {
+    String refreshToken = request.getHeader("X-Refresh-Token");
+    if (refreshToken == null) {
+      return null;
+    }
+    try {
+      return "device:" + jwtService.verify(refreshToken, "refresh").deviceId();
+    } catch (JwtException | IllegalArgumentException e) {
+      return null;
+    }
+  }
+
 }
@@ -0,0 +1,119 @@
+package com.johnson.blog.controllers;
+
+import java.util.List;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.johnson.blog.filters.CustomUserDetails;
+import com.johnson.blog.service.PostService;
+import com.johnson.utilities.dtos.BaseApiResponse;
+import com.johnson.utilities.dtos.postDtos.CreatePostDto;
+import com.johnson.utilities.dtos.postDtos.PostResponseDto;
+import com.johnson.utilities.dtos.postDtos.UpdatePostDto;
+
+import jakarta.validation.Valid;
+import lombok.NonNull;
+
+@RestController
+@Validated
+@RequestMapping("api/v1/posts")
+public class PostController {
+  @NonNull
+  private final PostService postService;
+
+  public PostController(PostService postService) {
+    this.postService = postService;
+  }
+
+  @PostMapping
+  public ResponseEntity<BaseApiResponse<PostResponseDto>> createPost(
+      @AuthenticationPrincipal CustomUserDetails user,
+      @Valid @RequestBody CreatePostDto createPostDto) {
+    return postService.createPost(user.getPrincipal().id(), createPostDto);
+  }
+
+  /// ?q= free text matched against titles and content
+  @GetMapping("/search")
+  public ResponseEntity<BaseApiResponse<List<PostResponseDto>>> searchPosts(
+      @RequestParam String q,
+      @RequestParam(defaultValue = "10") int size) {
+    return postService.searchPosts(q, size);
+  }
+
+  /// ?genre= narrows the ranking to one genre
+  @GetMapping("/trending")
+  public ResponseEntity<BaseApiResponse<List<PostResponseDto>>> getTrending(
+      @RequestParam(required = false) String genre,
+      @RequestParam(defaultValue = "10") int size) {
+    return postService.getTrending(genre, size);
+  }
+
+  /// If-None-Match with the ETag of a previous read gets a 304 while the post is unchanged
+  @GetMapping("/{postId}")
+  public ResponseEntity<BaseApiResponse<PostResponseDto>> getPost(
+      @PathVariable String postId,
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+    return postService.getPost(postId, ifNoneMatch);
+  }
+
+  @PatchMapping("/{postId}")
+  public ResponseEntity<BaseApiResponse<PostResponseDto>> updatePost(
+      @AuthenticationPrincipal CustomUserDetails user,
+      @PathVariable String postId,
+      @Valid @RequestBody UpdatePostDto updatePostDto) {
+    return postService.updatePost(user.getPrincipal().id(), postId, updatePostDto);
+  }
+
+  @DeleteMapping("/{postId}")
+  public ResponseEntity<BaseApiResponse<Void>> deletePost(
+      @AuthenticationPrincipal CustomUserDetails user,
+      @PathVariable String postId) {
+    return postService.deletePost(user.getPrincipal().id(), postId);
+  }
+
+  @PostMapping("/{postId}/likes")
+  public ResponseEntity<BaseApiResponse<Void>> likePost(
+      @AuthenticationPrincipal CustomUserDetails user,
+      @PathVariable String postId) {
+    return postService.likePost(user.getPrincipal().id(), postId);
+  }
+
+  @DeleteMapping("/{postId}/likes")
+  public ResponseEntity<BaseApiResponse<Void>> unlikePost(
+      @AuthenticationPrincipal CustomUserDetails user,
+      @PathVariable String postId) {
+    return postService.unlikePost(user.getPrincipal().id(), postId);
+  }
+
+  /// ?cursor= takes meta.nextCursor of the previous page
+  @GetMapping("/authors/{authorId}")
+  public ResponseEntity<BaseApiResponse<List<PostResponseDto>>> getAuthorFeed(
+      @PathVariable String authorId,
+      @RequestParam(required = false) String cursor,
+      @RequestParam(defaultValue = "10") int size,
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+    return postService.getAuthorFeed(authorId, cursor, size, ifNoneMatch);
+  }
+
+  @GetMapping("/genres/{genre}")
+  public ResponseEntity<BaseApiResponse<List<PostResponseDto>>> getGenreFeed(
+      @PathVariable String genre,
+      @RequestParam(required = false) String cursor,
+      @RequestParam(defaultValue = "10") int size,
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+    return postService.getGenreFeed(genre, cursor, size, ifNoneMatch);
+  }
+}
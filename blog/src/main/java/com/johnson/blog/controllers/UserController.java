@@ -0,0 +1,37 @@
+package com.johnson.blog.controllers;
+
+import java.util.List;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.johnson.blog.service.UserService;
+import com.johnson.utilities.dtos.BaseApiResponse;
+import com.johnson.utilities.dtos.authDtos.UserDataResponseDto;
+
+import lombok.NonNull;
+
+@RestController
+@Validated
+@RequestMapping("api/v1/users")
+public class UserController {
+  @NonNull
+  private final UserService userService;
+
+  public UserController(UserService userService) {
+    this.userService = userService;
+  }
+
+  /// ?cursor= takes meta.nextCursor of the previous page; ?count=estimate|exact adds a total
+  @GetMapping
+  public ResponseEntity<BaseApiResponse<List<UserDataResponseDto>>> getUsers(
+      @RequestParam(required = false) String cursor,
+      @RequestParam(defaultValue = "10") int size,
+      @RequestParam(defaultValue = "none") String count) {
+    return userService.getUsers(cursor, size, count);
+  }
+}
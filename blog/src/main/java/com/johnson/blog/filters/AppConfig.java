@@ -1,14 +1,25 @@
 package com.johnson.blog.filters;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import io.micrometer.core.instrument.MeterRegistry;
+
 @Configuration
 public class AppConfig {
-  @Bean
-  public PasswordEncoder passwordEncoder() {
-    return new BCryptPasswordEncoder();
+  /// BCrypt runs on a dedicated, bounded pool (see BoundedPasswordEncoder).
+  /// threads <= 0 sizes the pool to the number of cores.
+  @Bean(destroyMethod = "shutdown")
+  public PasswordEncoder passwordEncoder(
+      MeterRegistry meterRegistry,
+      @Value("${application.security.password.threads:0}") int threads,
+      @Value("${application.security.password.queue-capacity:64}") int queueCapacity,
+      @Value("${application.security.password.timeout-ms:2000}") long timeoutMs) {
+    int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    return new BoundedPasswordEncoder(new BCryptPasswordEncoder(), poolSize, queueCapacity, timeoutMs,
+        meterRegistry);
   }
 }
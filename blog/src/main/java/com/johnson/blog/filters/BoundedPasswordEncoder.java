@@ -0,0 +1,100 @@
+package com.johnson.blog.filters;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.johnson.utilities.exceptions.ServiceUnavailableException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/*
+ * Runs BCrypt hashing/verification on its own pool instead of the servlet
+ * thread, so a login or registration burst cannot tie up every Tomcat worker.
+ * The pool is sized near the core count with a bounded queue; when it is
+ * saturated (or a caller waits too long) the request fails fast with 503 and
+ * a Retry-After header instead of queueing without limit.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder {
+  private static final long RETRY_AFTER_SECONDS = 1;
+
+  private final PasswordEncoder delegate;
+  private final ThreadPoolExecutor executor;
+  private final long timeoutMs;
+  private final Timer encodeTimer;
+  private final Timer matchesTimer;
+  private final Counter rejectedCounter;
+
+  public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity, long timeoutMs,
+      MeterRegistry meterRegistry) {
+    this.delegate = delegate;
+    this.timeoutMs = timeoutMs;
+    this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("password-hash-"),
+        new ThreadPoolExecutor.AbortPolicy());
+
+    this.encodeTimer = Timer.builder("password.hash.duration").tag("operation", "encode").register(meterRegistry);
+    this.matchesTimer = Timer.builder("password.hash.duration").tag("operation", "matches").register(meterRegistry);
+    this.rejectedCounter = Counter.builder("password.hash.rejected")
+        .description("password hash/verify calls rejected because the pool was saturated")
+        .register(meterRegistry);
+    meterRegistry.gauge("password.hash.queue.size", executor, e -> e.getQueue().size());
+    meterRegistry.gauge("password.hash.active", executor, ThreadPoolExecutor::getActiveCount);
+  }
+
+  @Override
+  public String encode(CharSequence rawPassword) {
+    return _run(encodeTimer, () -> delegate.encode(rawPassword));
+  }
+
+  @Override
+  public boolean matches(CharSequence rawPassword, String encodedPassword) {
+    return _run(matchesTimer, () -> delegate.matches(rawPassword, encodedPassword));
+  }
+
+  @Override
+  public boolean upgradeEncoding(String encodedPassword) {
+    return delegate.upgradeEncoding(encodedPassword);
+  }
+
+  private <T> T _run(Timer timer, Supplier<T> task) {
+    Future<T> future;
+    try {
+      future = executor.submit(() -> timer.record(task));
+    } catch (RejectedExecutionException e) {
+      rejectedCounter.increment();
+      throw new ServiceUnavailableException("Server is busy, please retry shortly", RETRY_AFTER_SECONDS);
+    }
+
+    try {
+      return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      future.cancel(true);
+      rejectedCounter.increment();
+      throw new ServiceUnavailableException("Server is busy, please retry shortly", RETRY_AFTER_SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      future.cancel(true);
+      throw new ServiceUnavailableException("Request interrupted", RETRY_AFTER_SECONDS);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  public void shutdown() {
+    executor.shutdown();
+  }
+}
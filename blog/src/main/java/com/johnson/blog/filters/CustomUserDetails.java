@@ -3,44 +3,41 @@ package com.johnson.blog.filters;
 import java.time.OffsetDateTime;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.function.Supplier;
 
 import org.springframework.security.core.GrantedAuthority;
 // import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
-import com.johnson.database.model.UserModel;
+import com.johnson.database.projection.UserPrincipal;
 
 /// create a custom UserDetails so that i can include fields absent in userDetails,
 /// so that making extra runs to the database for these user fields would be avoided.
-/// and to avoid unneccessary loading of all user fields, a lazy loading is used
+/// immutable: wraps a UserPrincipal projection (never a managed UserModel, so no
+/// lazy loads of posts/sessions) and the password hash, which is only present on
+/// the login path
 public class CustomUserDetails implements UserDetails {
-  /// Cached after first load
-  /// Subsequent calls to getFirstname(), etc. won't hit DB
-  private UserModel user;
-  private final Supplier<UserModel> userLoader;
+  private final UserPrincipal principal;
+  private final String passwordHash;
 
-  public CustomUserDetails(Supplier<UserModel> userLoader) {
-    this.userLoader = userLoader;
+  public CustomUserDetails(UserPrincipal principal, String passwordHash) {
+    this.principal = principal;
+    this.passwordHash = passwordHash;
   }
 
-  // thread-safe
-  private synchronized UserModel _getUser() {
-    if (user == null) {
-      user = userLoader.get();
-    }
-    return user;
+  /// token-authenticated requests never need the hash
+  public CustomUserDetails(UserPrincipal principal) {
+    this(principal, null);
   }
 
   // Standard UserDetails methods
   @Override
   public String getUsername() {
-    return _getUser().getEmail();
+    return principal.email();
   }
 
   @Override
   public String getPassword() {
-    return _getUser().getPassword();
+    return passwordHash;
   }
 
   @Override
@@ -75,37 +72,31 @@ public class CustomUserDetails implements UserDetails {
 
   // Custom field accessors
   public String getUserId() {
-    return _getUser().getId();
+    return principal.id();
   }
 
   public String getFirstname() {
-    return _getUser().getFirstname();
+    return principal.firstname();
   }
 
-  // public String getIsDeleted() {
-  // return _getUser().getIsDeleted();
-  // }
+  public boolean getIsDeleted() {
+    return principal.isDeleted();
+  }
 
-  // public String getIsDeactivated() {
-  // return _getUser().getIsDeactivated();
-  // }
+  public boolean getIsDeactivated() {
+    return principal.isDeactivated();
+  }
 
   public OffsetDateTime getCreatedAt() {
-    return _getUser().getCreatedAt();
+    return principal.createdAt();
   }
 
   public OffsetDateTime getUpdatedAt() {
-    return _getUser().getUpdatedAt();
-  }
-
-  /// When there is a change in user data, this method can be called.
-  /// then the call for userDetails would fetch the updated user data.
-  public void refreshUser() {
-    this.user = null;
+    return principal.updatedAt();
   }
 
-  public UserModel getUser() {
-    return user;
+  public UserPrincipal getPrincipal() {
+    return principal;
   }
 
 }
@@ -5,12 +5,15 @@ import java.util.List;
 
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import com.johnson.blog.service.CustomUserDetailsService;
 import com.johnson.blog.service.JwtService;
+import com.johnson.blog.service.VerifiedToken;
+import com.johnson.utilities.exceptions.UnauthorizedException;
 
 import io.jsonwebtoken.JwtException;
 import io.micrometer.common.lang.NonNull;
@@ -82,7 +85,9 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     String jwtToken = authHeader.substring(7);
 
     // Validate token and set authentication
-    authenticateFromToken(jwtToken, request, response);
+    if (!authenticateFromToken(jwtToken, request, response)) {
+      return; // error response already written
+    }
     // Proceed to next filter/controller ONLY if token was valid
     filterChain.doFilter(request, response);
   }
@@ -108,28 +113,36 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
   }
 
   /**
-   * Validates JWT and authenticates the user if valid
+   * Validates JWT and authenticates the user if valid.
+   * The token is parsed and its signature checked exactly once; every later
+   * check reads from the resulting VerifiedToken, which is also exposed as a
+   * request attribute for downstream services (e.g. logout).
    */
-  private void authenticateFromToken(String jwt, HttpServletRequest request, HttpServletResponse response)
-      throws IOException, JwtException {
-    // Extract email claim from JWT
-    String email = jwtService.extractClaim(jwt, "email", "access");
+  private boolean authenticateFromToken(String jwt, HttpServletRequest request, HttpServletResponse response)
+      throws IOException {
+    CustomUserDetails customUserDetails;
+    try {
+      // Verify signature and expiration once, then read every claim from it
+      VerifiedToken verifiedToken = jwtService.verify(jwt, "access");
 
-    // Load user details from database
-    CustomUserDetails customUserDetails = customUserDetailsService.loadUserByUsername(email);
+      // Load the (cached) principal; the password hash is not needed here
+      customUserDetails = customUserDetailsService.loadPrincipal(verifiedToken.email());
 
-    try {
-      // Validate token signature, expiration, and revocation status
-      if (!jwtService.isTokenValid(jwt, customUserDetails, "access") || jwtService.isTokenRevoked(jwt, "access")) {
+      // Validate token subject, expiration, and revocation status
+      if (!jwtService.isTokenValid(verifiedToken, customUserDetails) || jwtService.isTokenRevoked(verifiedToken)) {
         sendAuthError(response, "Token validation failed");
+        return false;
       }
-    } catch (JwtException e) {
+      request.setAttribute(VerifiedToken.REQUEST_ATTRIBUTE, verifiedToken);
+    } catch (JwtException | UnauthorizedException | UsernameNotFoundException e) {
       // Handle specific JWT errors (expired, malformed, etc)
       sendAuthError(response, e.getMessage());
+      return false;
     }
 
     // Set authentication in security context
     _setAuthenticationInContext(customUserDetails, request);
+    return true;
   }
 
   /**
@@ -1,26 +1,38 @@
 package com.johnson.blog.filters;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.fasterxml.jackson.databind.jsontype.BasicPolymorphicTypeValidator;
 import com.fasterxml.jackson.databind.jsontype.PolymorphicTypeValidator;
+import com.johnson.blog.service.PostResponseCache;
+import com.johnson.blog.service.SessionExpiryReconciler;
+import com.johnson.blog.service.UserPrincipalCache;
 
 @Configuration
 public class RedisConfig {
 
   @Bean
-  public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory) {
+  public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory,
+      @Value("${application.redis.session-serialization:compact}") String sessionSerialization) {
     RedisTemplate<String, Object> template = new RedisTemplate<>();
 
     template.setConnectionFactory(connectionFactory);
 
-    ObjectMapper mapper = new ObjectMapper();
+    ObjectMapper mapper = new ObjectMapper()
+        .registerModule(new JavaTimeModule())
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
 
     PolymorphicTypeValidator typeValidator = BasicPolymorphicTypeValidator.builder()
         .allowIfBaseType(Object.class)
@@ -36,9 +48,36 @@ public class RedisConfig {
     template.setValueSerializer(jsonSerializer);
     template.setKeySerializer(new StringRedisSerializer());
     template.setHashKeySerializer(new StringRedisSerializer());
-    template.setHashValueSerializer(jsonSerializer);
+    // session hashes: "compact" writes tagged raw values, "json" keeps the
+    // previous Jackson encoding. Both modes read either format.
+    template.setHashValueSerializer(
+        new SessionValueRedisSerializer(jsonSerializer, !"json".equalsIgnoreCase(sessionSerialization)));
     template.afterPropertiesSet();
 
     return template;
   }
+
+  /// delivers user and post cache invalidations broadcast by other nodes and, when the
+  /// server has notify-keyspace-events Ex set, expiry events of session hashes
+  @Bean
+  public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory,
+      UserPrincipalCache userPrincipalCache,
+      PostResponseCache postResponseCache,
+      SessionExpiryReconciler sessionExpiryReconciler,
+      @Value("${application.user-cache.pubsub-enabled:true}") boolean userCachePubSub,
+      @Value("${application.post-cache.pubsub-enabled:true}") boolean postCachePubSub,
+      @Value("${application.session.expiry.keyspace-notifications:false}") boolean keyspaceNotifications) {
+    RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+    container.setConnectionFactory(connectionFactory);
+    if (userCachePubSub) {
+      container.addMessageListener(userPrincipalCache, new ChannelTopic(UserPrincipalCache.INVALIDATION_CHANNEL));
+    }
+    if (postCachePubSub) {
+      container.addMessageListener(postResponseCache, new ChannelTopic(PostResponseCache.INVALIDATION_CHANNEL));
+    }
+    if (keyspaceNotifications) {
+      container.addMessageListener(sessionExpiryReconciler, new PatternTopic("__keyevent@*__:expired"));
+    }
+    return container;
+  }
 }
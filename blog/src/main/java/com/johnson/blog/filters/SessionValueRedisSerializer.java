@@ -0,0 +1,92 @@
+package com.johnson.blog.filters;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/*
+ * Hash value serializer for session data.
+ *
+ * In compact mode strings are stored as raw UTF-8, booleans as a single byte
+ * and timestamps/longs as fixed-width big-endian numbers, each behind a one
+ * byte type tag. Anything else is written by the JSON delegate.
+ *
+ * Reads accept both formats in either mode: the tags are control bytes that
+ * can never start a JSON document, so values written before the switch (plain
+ * Jackson JSON) are still handed to the delegate. That keeps the migration
+ * safe in both directions.
+ */
+public class SessionValueRedisSerializer implements RedisSerializer<Object> {
+  static final byte STRING = 0x01;
+  static final byte TRUE = 0x02;
+  static final byte FALSE = 0x03;
+  static final byte INSTANT = 0x04;
+  static final byte LONG = 0x05;
+
+  private static final byte[] EMPTY = new byte[0];
+
+  private final RedisSerializer<Object> jsonSerializer;
+  private final boolean compact;
+
+  public SessionValueRedisSerializer(RedisSerializer<Object> jsonSerializer, boolean compact) {
+    this.jsonSerializer = jsonSerializer;
+    this.compact = compact;
+  }
+
+  @Override
+  public byte[] serialize(Object value) throws SerializationException {
+    if (value == null) {
+      return EMPTY;
+    }
+    if (!compact) {
+      return jsonSerializer.serialize(value);
+    }
+
+    if (value instanceof String string) {
+      byte[] utf8 = string.getBytes(StandardCharsets.UTF_8);
+      return ByteBuffer.allocate(1 + utf8.length).put(STRING).put(utf8).array();
+    }
+    if (value instanceof Boolean bool) {
+      return new byte[] { bool ? TRUE : FALSE };
+    }
+    if (value instanceof Instant instant) {
+      return ByteBuffer.allocate(13)
+          .put(INSTANT)
+          .putLong(instant.getEpochSecond())
+          .putInt(instant.getNano())
+          .array();
+    }
+    if (value instanceof Long number) {
+      return ByteBuffer.allocate(9).put(LONG).putLong(number).array();
+    }
+    return jsonSerializer.serialize(value);
+  }
+
+  @Override
+  public Object deserialize(byte[] bytes) throws SerializationException {
+    if (bytes == null || bytes.length == 0) {
+      return null;
+    }
+
+    switch (bytes[0]) {
+      case STRING:
+        return new String(bytes, 1, bytes.length - 1, StandardCharsets.UTF_8);
+      case TRUE:
+        return Boolean.TRUE;
+      case FALSE:
+        return Boolean.FALSE;
+      case INSTANT: {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 1, 12);
+        return Instant.ofEpochSecond(buffer.getLong(), buffer.getInt());
+      }
+      case LONG:
+        return ByteBuffer.wrap(bytes, 1, 8).getLong();
+      default:
+        // legacy (or json mode) entry
+        return jsonSerializer.deserialize(bytes);
+    }
+  }
+}
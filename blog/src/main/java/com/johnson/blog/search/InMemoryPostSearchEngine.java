@@ -0,0 +1,124 @@
+package com.johnson.blog.search;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.johnson.database.projection.PostIndexRow;
+import com.johnson.database.repository.PostRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/*
+ * Serves search from an InvertedIndex held by this node.
+ *
+ * The index is loaded from blog_posts once the application is ready and then
+ * kept current two ways: PostService calls index/remove after each commit on
+ * this node, and a periodic sync walks posts changed since the last sync, which
+ * picks up writes made on other nodes. The sync re-reads a window of
+ * sync-overlap before its watermark because updated_at comes from each node's
+ * clock and a transaction may commit after a later timestamp was seen;
+ * re-reading is cheap since unchanged versions are skipped.
+ */
+@Component
+@ConditionalOnProperty(name = "application.search.engine", havingValue = "memory")
+public class InMemoryPostSearchEngine implements PostSearchEngine {
+  private static final Logger logger = LoggerFactory.getLogger(InMemoryPostSearchEngine.class);
+  private static final OffsetDateTime EPOCH = OffsetDateTime.parse("1970-01-01T00:00:00Z");
+  // sorts before every UUID id
+  private static final String FIRST_ID = "00000000-0000-0000-0000-000000000000";
+
+  private final PostRepository postRepository;
+  private final InvertedIndex index;
+  private final int batchSize;
+  private final Duration syncOverlap;
+
+  private volatile boolean ready;
+  // newest updated_at seen; only touched by the (single) sync thread
+  private OffsetDateTime watermark = EPOCH;
+
+  public InMemoryPostSearchEngine(
+      PostRepository postRepository,
+      MeterRegistry meterRegistry,
+      @Value("${application.search.memory.title-weight:3}") int titleWeight,
+      @Value("${application.search.memory.compact-ratio:0.2}") double compactRatio,
+      @Value("${application.search.memory.batch-size:1000}") int batchSize,
+      @Value("${application.search.memory.sync-overlap-seconds:30}") long syncOverlapSeconds) {
+    this.postRepository = postRepository;
+    this.index = new InvertedIndex(titleWeight, compactRatio);
+    this.batchSize = batchSize;
+    this.syncOverlap = Duration.ofSeconds(syncOverlapSeconds);
+    meterRegistry.gauge("search.index.documents", index, InvertedIndex::size);
+    meterRegistry.gauge("search.index.postings.bytes", index, InvertedIndex::postingsSizeInBytes);
+  }
+
+  @Override
+  public List<SearchHit> search(String query, int limit) {
+    return index.search(query, limit);
+  }
+
+  @Override
+  public void index(String postId, String title, String content, long version) {
+    index.index(postId, title, content, version);
+  }
+
+  @Override
+  public void remove(String postId) {
+    index.remove(postId);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void load() {
+    long started = System.currentTimeMillis();
+    sync();
+    ready = true;
+    logger.info("Search index loaded {} posts in {} ms", index.size(), System.currentTimeMillis() - started);
+  }
+
+  @Scheduled(fixedDelayString = "${application.search.memory.sync-interval-ms:5000}")
+  public void scheduledSync() {
+    if (ready) {
+      sync();
+    }
+  }
+
+  /// applies every post written since the watermark, in keyset batches
+  synchronized void sync() {
+    OffsetDateTime from = watermark.equals(EPOCH) ? EPOCH : watermark.minus(syncOverlap);
+    String afterId = FIRST_ID;
+    try {
+      while (true) {
+        List<PostIndexRow> rows = postRepository.findChangedSince(from, afterId, PageRequest.ofSize(batchSize));
+        for (PostIndexRow row : rows) {
+          if (row.isDeleted()) {
+            index.remove(row.id());
+          } else {
+            index.index(row.id(), row.title(), row.content(), row.updatedAt().toInstant().toEpochMilli());
+          }
+          if (row.updatedAt().isAfter(watermark)) {
+            watermark = row.updatedAt();
+          }
+        }
+        if (rows.size() < batchSize) {
+          return;
+        }
+        PostIndexRow last = rows.get(rows.size() - 1);
+        from = last.updatedAt();
+        afterId = last.id();
+      }
+    } catch (RuntimeException e) {
+      // the next sync starts again from the watermark
+      logger.warn("Search index sync failed: {}", e.getMessage());
+    }
+  }
+}
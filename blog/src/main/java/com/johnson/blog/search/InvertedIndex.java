@@ -0,0 +1,345 @@
+package com.johnson.blog.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+ * In-process inverted index with BM25 ranking.
+ *
+ * Every indexed version of a post gets a new internal doc id, so postings are
+ * only ever appended (see PostingList). Updating or removing a post clears
+ * its bit in the live set; dead docs are skipped at query time and dropped by
+ * a compaction once they pass compactRatio of all doc ids. Like Lucene, term
+ * statistics count dead docs until then.
+ *
+ * Title terms count titleWeight times, a cheap stand-in for field boosts.
+ * Queries score document-at-a-time and keep the best k in a bounded heap.
+ * Once the heap is full its weakest score is a threshold: terms that cannot
+ * beat it together stop producing candidates (MaxScore), and runs of postings
+ * whose block bounds cannot beat it are skipped undecoded (block-max). A
+ * query on a term found in most posts then touches a small share of them.
+ *
+ * Reads run concurrently under the read lock; writes take the write lock.
+ */
+public class InvertedIndex {
+  private static final float K1 = 1.2f;
+  private static final float B = 0.75f;
+  private static final int MIN_DEAD_DOCS_TO_COMPACT = 1024;
+
+  private final int titleWeight;
+  private final double compactRatio;
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+  private final Map<String, Integer> termIds = new HashMap<>();
+  private final List<PostingList> postings = new ArrayList<>();
+  /// post id -> doc id of its live version
+  private final Map<String, Integer> liveDocIds = new HashMap<>();
+  private BitSet live = new BitSet();
+  private String[] postIds = new String[1024];
+  private int[] docLengths = new int[1024];
+  private long[] versions = new long[1024];
+  private int maxDoc;
+  private int liveDocs;
+  private long liveLength;
+
+  public InvertedIndex(int titleWeight, double compactRatio) {
+    this.titleWeight = titleWeight;
+    this.compactRatio = compactRatio;
+  }
+
+  /// adds or replaces the post; ignored when version is not newer than the
+  /// version already indexed
+  public void index(String postId, String title, String content, long version) {
+    // tokenize outside the lock
+    Map<String, int[]> termFreqs = new HashMap<>();
+    int length = _count(Tokenizer.tokenize(title), titleWeight, termFreqs)
+        + _count(Tokenizer.tokenize(content), 1, termFreqs);
+
+    lock.writeLock().lock();
+    try {
+      Integer current = liveDocIds.get(postId);
+      if (current != null) {
+        if (versions[current] >= version) {
+          return;
+        }
+        _kill(current);
+      }
+      if (termFreqs.isEmpty()) {
+        return;
+      }
+
+      int doc = maxDoc++;
+      _ensureCapacity(maxDoc);
+      postIds[doc] = postId;
+      docLengths[doc] = length;
+      versions[doc] = version;
+      live.set(doc);
+      liveDocIds.put(postId, doc);
+      liveDocs++;
+      liveLength += length;
+
+      for (Map.Entry<String, int[]> entry : termFreqs.entrySet()) {
+        Integer termId = termIds.get(entry.getKey());
+        if (termId == null) {
+          termId = postings.size();
+          termIds.put(entry.getKey(), termId);
+          postings.add(new PostingList());
+        }
+        postings.get(termId).add(doc, entry.getValue()[0], length);
+      }
+      _maybeCompact();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public void remove(String postId) {
+    lock.writeLock().lock();
+    try {
+      Integer current = liveDocIds.get(postId);
+      if (current != null) {
+        _kill(current);
+        _maybeCompact();
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /// the k best live posts for the query terms (any term matches), best first
+  public List<SearchHit> search(String query, int k) {
+    List<String> terms = Tokenizer.tokenize(query).stream().distinct().toList();
+    if (terms.isEmpty() || k < 1) {
+      return List.of();
+    }
+
+    lock.readLock().lock();
+    try {
+      if (liveDocs == 0) {
+        return List.of();
+      }
+      double averageLength = (double) liveLength / liveDocs;
+      List<TermScorer> found = new ArrayList<>();
+      for (String term : terms) {
+        Integer termId = termIds.get(term);
+        if (termId != null && postings.get(termId).docFreq() > 0) {
+          found.add(new TermScorer(postings.get(termId), _idf(postings.get(termId).docFreq()), averageLength));
+        }
+      }
+      if (found.isEmpty()) {
+        return List.of();
+      }
+
+      // weakest term first; upTo[i] is the best score terms 0..i can add together
+      TermScorer[] scorers = found.toArray(new TermScorer[0]);
+      Arrays.sort(scorers, (a, b) -> Double.compare(a.maxScore, b.maxScore));
+      double[] upTo = new double[scorers.length];
+      for (int i = 0; i < scorers.length; i++) {
+        upTo[i] = scorers[i].maxScore + (i > 0 ? upTo[i - 1] : 0);
+      }
+
+      // min-heap on score: the root is the weakest of the current top k
+      PriorityQueue<ScoredDoc> top = new PriorityQueue<>(Math.min(k, 1024) + 1);
+      double threshold = 0;
+      // terms before firstEssential cannot lift a doc into the top k on their
+      // own, so only docs of the essential terms are candidates (MaxScore)
+      int firstEssential = 0;
+      while (firstEssential < scorers.length) {
+        int doc = PostingList.NO_MORE_DOCS;
+        for (int i = firstEssential; i < scorers.length; i++) {
+          doc = Math.min(doc, scorers[i].cursor.doc());
+        }
+        if (doc == PostingList.NO_MORE_DOCS) {
+          break;
+        }
+
+        if (top.size() == k) {
+          // best score reachable in the blocks around doc (block-max)
+          double bound = 0;
+          int boundUpTo = PostingList.NO_MORE_DOCS;
+          for (TermScorer scorer : scorers) {
+            int block = scorer.cursor.shallowAdvance(doc);
+            if (block >= 0) {
+              bound += scorer.blockMaxScore(block);
+              boundUpTo = Math.min(boundUpTo, scorer.postings.blockLastDoc(block));
+            }
+          }
+          if (bound <= threshold) {
+            // nothing up to boundUpTo can enter the top k
+            for (int i = firstEssential; i < scorers.length; i++) {
+              scorers[i].cursor.advance(boundUpTo == PostingList.NO_MORE_DOCS ? boundUpTo : boundUpTo + 1);
+            }
+            continue;
+          }
+        }
+
+        double score = 0;
+        for (int i = firstEssential; i < scorers.length; i++) {
+          PostingList.Cursor cursor = scorers[i].cursor;
+          if (cursor.doc() == doc) {
+            score += scorers[i].score(cursor.termFreq(), docLengths[doc]);
+            cursor.next();
+          }
+        }
+        for (int i = firstEssential - 1; i >= 0 && score + upTo[i] > threshold; i--) {
+          PostingList.Cursor cursor = scorers[i].cursor;
+          if (cursor.advance(doc) == doc) {
+            score += scorers[i].score(cursor.termFreq(), docLengths[doc]);
+          }
+        }
+
+        if (!live.get(doc) || (top.size() == k && score <= threshold)) {
+          continue;
+        }
+        top.add(new ScoredDoc(doc, score));
+        if (top.size() > k) {
+          top.poll();
+        }
+        if (top.size() == k) {
+          threshold = top.peek().score();
+          while (firstEssential < scorers.length && upTo[firstEssential] <= threshold) {
+            firstEssential++;
+          }
+        }
+      }
+
+      SearchHit[] hits = new SearchHit[top.size()];
+      for (int i = hits.length - 1; i >= 0; i--) {
+        ScoredDoc scored = top.poll();
+        hits[i] = new SearchHit(postIds[scored.doc()], scored.score());
+      }
+      return Arrays.asList(hits);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return liveDocs;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /// bytes held by compressed postings
+  public long postingsSizeInBytes() {
+    lock.readLock().lock();
+    try {
+      long bytes = 0;
+      for (PostingList postingList : postings) {
+        bytes += postingList.sizeInBytes();
+      }
+      return bytes;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private double _idf(int docFreq) {
+    return Math.log(1 + (maxDoc - docFreq + 0.5) / (docFreq + 0.5));
+  }
+
+  private static int _count(List<String> tokens, int weight, Map<String, int[]> termFreqs) {
+    for (String token : tokens) {
+      termFreqs.computeIfAbsent(token, t -> new int[1])[0] += weight;
+    }
+    return tokens.size() * weight;
+  }
+
+  private void _kill(int doc) {
+    live.clear(doc);
+    liveDocIds.remove(postIds[doc]);
+    liveDocs--;
+    liveLength -= docLengths[doc];
+  }
+
+  private void _ensureCapacity(int docs) {
+    if (docs > postIds.length) {
+      int capacity = Math.max(docs, postIds.length * 2);
+      postIds = Arrays.copyOf(postIds, capacity);
+      docLengths = Arrays.copyOf(docLengths, capacity);
+      versions = Arrays.copyOf(versions, capacity);
+    }
+  }
+
+  /// renumbers live docs densely and rewrites every posting list without the
+  /// dead ones; runs under the write lock
+  private void _maybeCompact() {
+    int deadDocs = maxDoc - liveDocs;
+    if (deadDocs < MIN_DEAD_DOCS_TO_COMPACT || deadDocs < compactRatio * maxDoc) {
+      return;
+    }
+
+    int[] remap = new int[maxDoc];
+    int next = 0;
+    for (int doc = 0; doc < maxDoc; doc++) {
+      remap[doc] = live.get(doc) ? next++ : -1;
+    }
+
+    String[] compactedPostIds = new String[Math.max(1024, next)];
+    int[] compactedLengths = new int[compactedPostIds.length];
+    long[] compactedVersions = new long[compactedPostIds.length];
+    for (int doc = 0; doc < maxDoc; doc++) {
+      if (remap[doc] >= 0) {
+        compactedPostIds[remap[doc]] = postIds[doc];
+        compactedLengths[remap[doc]] = docLengths[doc];
+        compactedVersions[remap[doc]] = versions[doc];
+      }
+    }
+    for (int termId = 0; termId < postings.size(); termId++) {
+      postings.set(termId, postings.get(termId).compact(remap, docLengths));
+    }
+    liveDocIds.replaceAll((postId, doc) -> remap[doc]);
+
+    postIds = compactedPostIds;
+    docLengths = compactedLengths;
+    versions = compactedVersions;
+    live = new BitSet(next);
+    live.set(0, next);
+    maxDoc = next;
+  }
+
+  /// BM25 of one query term; bounds use the highest tf and shortest doc of
+  /// the list (or block), since the score grows with tf and shrinks with length
+  private static final class TermScorer {
+    private final PostingList postings;
+    private final PostingList.Cursor cursor;
+    private final double idf;
+    private final double averageLength;
+    private final double maxScore;
+
+    TermScorer(PostingList postings, double idf, double averageLength) {
+      this.postings = postings;
+      this.cursor = postings.cursor();
+      this.cursor.next();
+      this.idf = idf;
+      this.averageLength = averageLength;
+      this.maxScore = score(postings.maxTermFreq(), postings.minLength());
+    }
+
+    double score(int termFreq, int length) {
+      return idf * termFreq * (K1 + 1) / (termFreq + K1 * (1 - B + B * length / averageLength));
+    }
+
+    double blockMaxScore(int block) {
+      return score(postings.blockMaxTermFreq(block), postings.blockMinLength(block));
+    }
+  }
+
+  private record ScoredDoc(int doc, double score) implements Comparable<ScoredDoc> {
+    @Override
+    public int compareTo(ScoredDoc other) {
+      int byScore = Double.compare(score, other.score);
+      // equal scores: the older doc is evicted first
+      return byScore != 0 ? byScore : Integer.compare(doc, other.doc);
+    }
+  }
+}
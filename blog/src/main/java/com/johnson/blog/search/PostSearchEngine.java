@@ -0,0 +1,24 @@
+package com.johnson.blog.search;
+
+import java.util.List;
+
+/*
+ * Full-text search over live posts (title and content).
+ *
+ * Selected with application.search.engine: "postgres" ranks against the
+ * blog_posts.search_vector tsvector column (GIN indexed, maintained by the
+ * database), "memory" against an inverted index held by each node. index and
+ * remove are called after a post is committed; engines backed by the
+ * database ignore them.
+ */
+public interface PostSearchEngine {
+
+  /// at most limit hits, best first
+  List<SearchHit> search(String query, int limit);
+
+  /// version orders writes of the same post (updatedAt in epoch millis); an
+  /// older or equal version than the one indexed is ignored
+  void index(String postId, String title, String content, long version);
+
+  void remove(String postId);
+}
@@ -0,0 +1,198 @@
+package com.johnson.blog.search;
+
+import java.util.Arrays;
+
+/*
+ * Append-only postings of one term: (doc gap, term frequency) pairs encoded
+ * as variable-length ints. Documents are added in increasing doc id order, so
+ * gaps stay small and most pairs take two bytes instead of eight.
+ *
+ * Every BLOCK_SIZE postings a block starts; per block we keep its byte offset
+ * and last doc (skip pointers, so a cursor can jump without decoding) and its
+ * highest term frequency and shortest document (so a query can bound the best
+ * score any doc of the block could reach, and skip the block outright).
+ * Not thread-safe; InvertedIndex guards it with its lock.
+ */
+final class PostingList {
+  static final int NO_MORE_DOCS = Integer.MAX_VALUE;
+  static final int BLOCK_SIZE = 128;
+
+  private byte[] bytes = new byte[8];
+  private int size;
+  private int lastDoc = -1;
+  private int docFreq;
+  private int maxTermFreq;
+  private int minLength = Integer.MAX_VALUE;
+
+  private int blockCount;
+  private int[] blockStart = new int[1];
+  private int[] blockLastDoc = new int[1];
+  private int[] blockMaxTermFreq = new int[1];
+  private int[] blockMinLength = new int[1];
+
+  /// length is the indexed length of the doc, used for score bounds only
+  void add(int doc, int termFreq, int length) {
+    if (doc <= lastDoc) {
+      throw new IllegalArgumentException("doc ids must increase: " + doc + " after " + lastDoc);
+    }
+    if (docFreq % BLOCK_SIZE == 0) {
+      _startBlock();
+    }
+    _writeVarint(doc - lastDoc);
+    _writeVarint(termFreq);
+    lastDoc = doc;
+    docFreq++;
+    maxTermFreq = Math.max(maxTermFreq, termFreq);
+    minLength = Math.min(minLength, length);
+
+    int block = blockCount - 1;
+    blockLastDoc[block] = doc;
+    blockMaxTermFreq[block] = Math.max(blockMaxTermFreq[block], termFreq);
+    blockMinLength[block] = Math.min(blockMinLength[block], length);
+  }
+
+  /// documents listed, including removed ones until the next compaction
+  int docFreq() {
+    return docFreq;
+  }
+
+  int maxTermFreq() {
+    return maxTermFreq;
+  }
+
+  int minLength() {
+    return minLength;
+  }
+
+  int blockLastDoc(int block) {
+    return blockLastDoc[block];
+  }
+
+  int blockMaxTermFreq(int block) {
+    return blockMaxTermFreq[block];
+  }
+
+  int blockMinLength(int block) {
+    return blockMinLength[block];
+  }
+
+  int sizeInBytes() {
+    return size + blockCount * 16;
+  }
+
+  Cursor cursor() {
+    return new Cursor();
+  }
+
+  /// copy without the docs mapped to -1, renumbered through remap; lengths
+  /// are indexed by the old doc ids
+  PostingList compact(int[] remap, int[] lengths) {
+    PostingList compacted = new PostingList();
+    Cursor cursor = cursor();
+    while (cursor.next() != NO_MORE_DOCS) {
+      int doc = remap[cursor.doc()];
+      if (doc >= 0) {
+        compacted.add(doc, cursor.termFreq(), lengths[cursor.doc()]);
+      }
+    }
+    return compacted;
+  }
+
+  private void _startBlock() {
+    if (blockCount == blockStart.length) {
+      int capacity = blockCount * 2;
+      blockStart = Arrays.copyOf(blockStart, capacity);
+      blockLastDoc = Arrays.copyOf(blockLastDoc, capacity);
+      blockMaxTermFreq = Arrays.copyOf(blockMaxTermFreq, capacity);
+      blockMinLength = Arrays.copyOf(blockMinLength, capacity);
+    }
+    blockStart[blockCount] = size;
+    blockMaxTermFreq[blockCount] = 0;
+    blockMinLength[blockCount] = Integer.MAX_VALUE;
+    blockCount++;
+  }
+
+  private void _writeVarint(int value) {
+    if (size + 5 > bytes.length) {
+      bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + 5));
+    }
+    while ((value & ~0x7F) != 0) {
+      bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    bytes[size++] = (byte) value;
+  }
+
+  /// forward-only decoder; starts before the first document
+  final class Cursor {
+    private int position;
+    private int ordinal = -1;
+    private int doc = -1;
+    private int termFreq;
+    private int shallowBlock;
+
+    /// advances to the next document and returns it, or NO_MORE_DOCS
+    int next() {
+      if (position >= size) {
+        doc = NO_MORE_DOCS;
+        return doc;
+      }
+      ordinal++;
+      doc += _readVarint();
+      termFreq = _readVarint();
+      return doc;
+    }
+
+    /// advances to the first document >= target, jumping over whole blocks
+    int advance(int target) {
+      if (doc >= target) {
+        return doc;
+      }
+      int block = shallowAdvance(target);
+      if (block < 0) {
+        position = size;
+        doc = NO_MORE_DOCS;
+        return doc;
+      }
+      if (block > Math.max(ordinal, 0) / BLOCK_SIZE) {
+        position = blockStart[block];
+        doc = block == 0 ? -1 : blockLastDoc[block - 1];
+        ordinal = block * BLOCK_SIZE - 1;
+      }
+      while (next() < target) {
+      }
+      return doc;
+    }
+
+    /// the block that holds the first document >= target, or -1 when there is
+    /// none; does not move the cursor. Targets must not decrease.
+    int shallowAdvance(int target) {
+      int block = Math.max(shallowBlock, Math.max(ordinal, 0) / BLOCK_SIZE);
+      while (block < blockCount && blockLastDoc[block] < target) {
+        block++;
+      }
+      shallowBlock = block;
+      return block < blockCount ? block : -1;
+    }
+
+    int doc() {
+      return doc;
+    }
+
+    int termFreq() {
+      return termFreq;
+    }
+
+    private int _readVarint() {
+      int value = 0;
+      int shift = 0;
+      byte b;
+      do {
+        b = bytes[position++];
+        value |= (b & 0x7F) << shift;
+        shift += 7;
+      } while (b < 0);
+      return value;
+    }
+  }
+}
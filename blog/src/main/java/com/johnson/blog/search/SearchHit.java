@@ -0,0 +1,5 @@
+package com.johnson.blog.search;
+
+/// a matching post and its relevance; higher scores rank first
+public record SearchHit(String postId, double score) {
+}
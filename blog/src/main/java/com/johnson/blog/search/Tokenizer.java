@@ -0,0 +1,48 @@
+package com.johnson.blog.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/// Splits text into lowercase letter/digit runs, dropping English stop words
+/// and tokens too long to be words (urls, base64...). Queries and documents
+/// go through the same tokenizer so their terms match.
+public final class Tokenizer {
+  private static final int MAX_TOKEN_LENGTH = 40;
+  private static final Set<String> STOP_WORDS = Set.of(
+      "a", "an", "and", "are", "as", "at", "be", "but", "by", "for", "if", "in", "into", "is", "it",
+      "no", "not", "of", "on", "or", "such", "that", "the", "their", "then", "there", "these",
+      "they", "this", "to", "was", "will", "with");
+
+  private Tokenizer() {
+  }
+
+  public static List<String> tokenize(String text) {
+    List<String> tokens = new ArrayList<>();
+    if (text == null) {
+      return tokens;
+    }
+    StringBuilder token = new StringBuilder();
+    int i = 0;
+    while (i <= text.length()) {
+      int codePoint = i < text.length() ? text.codePointAt(i) : ' ';
+      if (Character.isLetterOrDigit(codePoint)) {
+        token.appendCodePoint(Character.toLowerCase(codePoint));
+      } else if (token.length() > 0) {
+        _emit(token, tokens);
+      }
+      i += Character.charCount(codePoint);
+    }
+    return tokens;
+  }
+
+  private static void _emit(StringBuilder token, List<String> tokens) {
+    if (token.length() <= MAX_TOKEN_LENGTH) {
+      String term = token.toString();
+      if (!STOP_WORDS.contains(term)) {
+        tokens.add(term);
+      }
+    }
+    token.setLength(0);
+  }
+}
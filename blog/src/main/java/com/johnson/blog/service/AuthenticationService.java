@@ -1,9 +1,13 @@
 package com.johnson.blog.service;
 
+import java.time.Duration;
+import java.time.OffsetDateTime;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
@@ -16,7 +20,7 @@ import org.springframework.stereotype.Service;
 
 import com.johnson.blog.filters.CustomUserDetails;
 import com.johnson.database.model.UserModel;
-import com.johnson.database.model.UserSessionModel;
+import com.johnson.database.projection.RotatedSession;
 import com.johnson.database.repository.UserRepository;
 import com.johnson.database.repository.UserSessionRepository;
 import com.johnson.utilities.UUIDGenerator;
@@ -39,6 +43,7 @@ import jakarta.transaction.Transactional;
 @Service
 @Transactional
 public class AuthenticationService {
+  private static final Logger logger = LoggerFactory.getLogger(AuthenticationService.class);
 
   private final UserRepository userRepository;
 
@@ -50,32 +55,45 @@ public class AuthenticationService {
 
   private final UserSessionRepository userSessionRepository;
 
-  private final GeoLocationService geoLocationService;
+  private final SessionEnrichmentService sessionEnrichmentService;
 
   private final RedisSessionService redisSessionService;
 
   private final CustomUserDetailsService customUserDetailsService;
 
+  private final UserSessionService userSessionService;
+
   @Value("${application.security.jwt.expiration}")
   private long JWT_EXPIRATION; // in seconds
 
+  // UPDATE ... RETURNING needs PostgreSQL; off in the H2 test profile
+  @Value("${application.session.native-upsert:true}")
+  private boolean nativeSessionUpsert = true;
+
+  // a rotated jti presented again within this long is a lost concurrent
+  // refresh (a retry, a second tab), not a stolen token
+  @Value("${application.session.reuse-grace-ms:10000}")
+  private long reuseGraceMs = 10000;
+
   public AuthenticationService(
       UserRepository userRepository,
       PasswordEncoder passwordEncoder,
       JwtService jwtService,
       AuthenticationManager authenticationManager,
       UserSessionRepository userSessionRepository,
-      GeoLocationService geoLocationService,
+      SessionEnrichmentService sessionEnrichmentService,
       RedisSessionService redisSessionService,
-      CustomUserDetailsService customUserDetailsService) {
+      CustomUserDetailsService customUserDetailsService,
+      UserSessionService userSessionService) {
     this.authenticationManager = authenticationManager;
     this.jwtService = jwtService;
     this.passwordEncoder = passwordEncoder;
     this.userRepository = userRepository;
     this.userSessionRepository = userSessionRepository;
-    this.geoLocationService = geoLocationService;
+    this.sessionEnrichmentService = sessionEnrichmentService;
     this.redisSessionService = redisSessionService;
     this.customUserDetailsService = customUserDetailsService;
+    this.userSessionService = userSessionService;
   }
 
   @Transactional(rollbackOn = {
@@ -114,12 +132,10 @@ public class AuthenticationService {
     return new ResponseEntity<>(response, HttpStatus.CREATED);
   }
 
-  @Transactional(rollbackOn = {
-      InternalServerException.class,
-      BadRequestException.class,
-      ValidationException.class,
-      DataIntegrityViolationException.class
-  })
+  /// Runs without a transaction: the password check waits on the bounded
+  /// BCrypt pool and must not hold a pool connection meanwhile. The session
+  /// writes happen afterwards in UserSessionService's own transaction.
+  @Transactional(Transactional.TxType.NOT_SUPPORTED)
   public ResponseEntity<BaseApiResponse<UserLoginResponseDto>> authenticate(UserLoginDto userLoginDto,
       HttpServletRequest request,
       HttpServletResponse response) {
@@ -140,7 +156,7 @@ public class AuthenticationService {
     CustomUserDetails customUserDetails = (CustomUserDetails) auth.getPrincipal();
 
     String jti = UUIDGenerator.generateUUIDv7();
-    String location = geoLocationService.geoLocationFromIP(request.getRemoteAddr());
+    String location = sessionEnrichmentService.resolveLocation(request.getRemoteAddr());
 
     Map<String, Object> extraClaims = this._buildClaims(
         customUserDetails.getUserId(),
@@ -156,32 +172,8 @@ public class AuthenticationService {
     extraClaims.put("tokenType", "refresh");
     String refreshJwtToken = jwtService.buildToken(extraClaims, customUserDetails, "refresh");
 
-    Optional<UserSessionModel> deviceIdExists = userSessionRepository
-        .findUserSessionByDeviceId(userLoginDto.getDeviceId());
-    if (deviceIdExists.isPresent()) {
-      if (!customUserDetails.getUserId().equals(deviceIdExists.get().getUser().getId())) {
-        throw new BadRequestException("device id must be unique");
-      }
-
-      // logging in deviceid is same with existing device
-      // update the jti with the newly generated jti and update is_logged_out to false
-      int updated = userSessionRepository.updateJtiAndIsLoggedOut(jti, customUserDetails.getUserId(),
-          userLoginDto.getDeviceId(),
-          false);
-      if (updated < 1) {
-        throw new InternalServerException("Something went wrong");
-      }
-
-    }
-    if (!deviceIdExists.isPresent()) {
-      UserSessionModel userSessionModel = new UserSessionModel();
-      userSessionModel.setJti(jti);
-      userSessionModel.setDeviceId(userLoginDto.getDeviceId());
-      userSessionModel.setIpAddress(request.getRemoteAddr());
-      userSessionModel.setLocation(location);
-      userSessionModel.setUser(customUserDetails.getUser());
-      userSessionRepository.save(userSessionModel);
-    }
+    userSessionService.openSession(customUserDetails.getUserId(), userLoginDto.getDeviceId(), jti,
+        request.getRemoteAddr(), location);
 
     Map<String, Object> accessToken = new HashMap<>();
     accessToken.put("token", jwtToken);
@@ -198,10 +190,6 @@ public class AuthenticationService {
 
     response.setHeader("X-Refresh-Token", refreshJwtToken);
 
-    this.redisSessionService.saveSession(customUserDetails.getUserId(), userLoginDto.getDeviceId(),
-        request.getRemoteAddr(),
-        location, jti);
-
     BaseApiResponse<UserLoginResponseDto> baseApiResponse = BaseApiResponse.success(
         "Login success",
         200,
@@ -214,7 +202,7 @@ public class AuthenticationService {
       BadRequestException.class,
       ValidationException.class,
       DataIntegrityViolationException.class
-  })
+  }, dontRollbackOn = UnauthorizedException.class) // keeps the revocation on refresh-token reuse
   public ResponseEntity<BaseApiResponse<Map<String, Object>>> refreshToken(HttpServletRequest request,
       HttpServletResponse response) {
     String headerRefreshToken = request.getHeader("X-Refresh-Token");
@@ -223,38 +211,31 @@ public class AuthenticationService {
     }
 
     try {
-      String userId = jwtService.extractClaim(headerRefreshToken, "userId", "refresh");
-      String email = jwtService.extractClaim(headerRefreshToken, "email", "refresh");
-      String tokenType = jwtService.extractClaim(headerRefreshToken, "tokenType", "refresh");
-      String deviceId = jwtService.extractClaim(headerRefreshToken, "deviceId", "refresh");
-      String jti = jwtService.extractClaim(headerRefreshToken, "jti", "refresh");
-
-      if (!tokenType.equals("refresh")) {
+      VerifiedToken verifiedToken = jwtService.verify(headerRefreshToken, "refresh");
+      String userId = verifiedToken.userId();
+      String email = verifiedToken.email();
+      String tokenType = verifiedToken.claim("tokenType");
+      String deviceId = verifiedToken.deviceId();
+      String jti = verifiedToken.jti();
+
+      if (!"refresh".equals(tokenType)) {
         throw new UnauthorizedException("Only Refresh Token allowed");
       }
 
-      Optional<UserSessionModel> userSessionExists = userSessionRepository.findUserSession(jti, userId, deviceId);
-
-      if (!userSessionExists.isPresent()) {
-        throw new UnauthorizedException("Invalid session");
-      }
-      if (userSessionExists.get().isLoggedOut()) {
-        throw new UnauthorizedException("Session has expired");
-      }
-      if (!userSessionExists.get().getJti().equals(jti)) {
-        throw new UnauthorizedException("Invalid Refresh Token");
-      }
-
       String newJti = UUIDGenerator.generateUUIDv7();
-
-      long isUpdated = userSessionRepository.updateJti(newJti, userId, deviceId);
-
-      if (isUpdated < 1) {
-        throw new InternalServerException("An unexpected error occurred. Could not refresh token.");
+      Optional<RotatedSession> rotated = this._rotateJti(jti, newJti, userId, deviceId);
+      redisSessionService.updateJti(userId, deviceId, newJti);
+
+      // same address as the session: keep its location instead of looking it up again
+      String location = rotated
+          .filter(session -> request.getRemoteAddr().equals(session.getIpAddress()))
+          .map(RotatedSession::getLocation)
+          .orElse(null);
+      if (location == null) {
+        location = sessionEnrichmentService.resolveLocation(request.getRemoteAddr());
+        sessionEnrichmentService.enrichAfterCommit(userId, deviceId, request.getRemoteAddr(), location);
       }
 
-      String location = geoLocationService.geoLocationFromIP(request.getRemoteAddr());
-
       Map<String, Object> extraClaims = this._buildClaims(
           userId,
           email,
@@ -265,7 +246,7 @@ public class AuthenticationService {
           request.getRemoteAddr(),
           location);
 
-      CustomUserDetails customUserDetails = this.customUserDetailsService.loadUserByUsername(email);
+      CustomUserDetails customUserDetails = this.customUserDetailsService.loadPrincipal(email);
 
       String jwtToken = jwtService.buildToken(extraClaims, customUserDetails, "access");
 
@@ -299,10 +280,9 @@ public class AuthenticationService {
       DataIntegrityViolationException.class
   })
   public ResponseEntity<BaseApiResponse<Map<String, Object>>> logoutUser(HttpServletRequest request) {
-    String jwtToken = request.getHeader("Authorization").substring(7);
-    String userId = jwtService.extractClaim(jwtToken, "userId", "access");
-    String deviceId = jwtService.extractClaim(jwtToken, "deviceId", "access");
-    redisSessionService.logoutADevice(userId, deviceId);
+    VerifiedToken verifiedToken = this._getVerifiedAccessToken(request);
+    redisSessionService.logoutADevice(verifiedToken.userId(), verifiedToken.deviceId());
+    jwtService.evict(verifiedToken);
 
     Map<String, Object> data = new HashMap<>();
     BaseApiResponse<Map<String, Object>> baseApiResponse = BaseApiResponse.success(
@@ -316,6 +296,45 @@ public class AuthenticationService {
     return responseEntity;
   }
 
+  /// the JwtAuthenticationFilter already verified the access token for this
+  /// request; reuse it instead of parsing the Authorization header again.
+  private VerifiedToken _getVerifiedAccessToken(HttpServletRequest request) {
+    Object verifiedToken = request.getAttribute(VerifiedToken.REQUEST_ATTRIBUTE);
+    if (verifiedToken instanceof VerifiedToken token) {
+      return token;
+    }
+    return jwtService.verify(request.getHeader("Authorization").substring(7), "access");
+  }
+
+  /// Moves the device session from jti to newJti in one compare-and-set, so of
+  /// two concurrent refreshes with the same token only one wins. A jti that was
+  /// already rotated away is a replayed token: the device session is revoked,
+  /// unless the rotation is younger than the grace window. There the loser of
+  /// two concurrent refreshes only gets a 401, and the winner's token stays
+  /// valid. The returned row is empty on the portable path.
+  private Optional<RotatedSession> _rotateJti(String jti, String newJti, String userId, String deviceId) {
+    Optional<RotatedSession> rotated;
+    boolean isRotated;
+    if (nativeSessionUpsert) {
+      rotated = userSessionRepository.rotateJtiReturning(jti, newJti, userId, deviceId);
+      isRotated = rotated.isPresent();
+    } else {
+      rotated = Optional.empty();
+      isRotated = userSessionRepository.rotateJti(jti, newJti, userId, deviceId) > 0;
+    }
+    if (isRotated) {
+      return rotated;
+    }
+
+    OffsetDateTime graceCutoff = OffsetDateTime.now().minus(Duration.ofMillis(reuseGraceMs));
+    if (userSessionRepository.revokeOnJtiReuse(jti, userId, deviceId, graceCutoff) > 0) {
+      logger.warn("Refresh token reuse detected for device {}, session revoked", deviceId);
+      redisSessionService.evictSession(userId, deviceId);
+      throw new UnauthorizedException("Refresh token reuse detected, please login again");
+    }
+    throw new UnauthorizedException("Invalid session");
+  }
+
   private Map<String, Object> _buildClaims(String userId, String email, String deviceId, String jti, String tokenType,
       String userAgent, String ipAddress, String location) {
     Map<String, Object> claims = new HashMap<>();
@@ -326,7 +345,10 @@ public class AuthenticationService {
     claims.put("jti", jti);
     claims.put("userAgent", userAgent);
     claims.put("ipAddress", ipAddress);
-    claims.put("location", location);
+    if (location != null) {
+      // optional: omitted when the location is looked up after login
+      claims.put("location", location);
+    }
     return claims;
   }
 }
@@ -1,13 +1,13 @@
 package com.johnson.blog.service;
 
-import java.util.function.Supplier;
 import io.swagger.v3.oas.models.OpenAPI;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Component;
 
 import com.johnson.blog.filters.CustomUserDetails;
-import com.johnson.database.model.UserModel;
+import com.johnson.database.projection.UserCredentials;
+import com.johnson.database.projection.UserPrincipal;
 import com.johnson.database.repository.UserRepository;
 
 /// UserDetailsService/CustomUserDetailsService serves as Spring Security's bridge between
@@ -23,21 +23,32 @@ import com.johnson.database.repository.UserRepository;
 public class CustomUserDetailsService implements UserDetailsService {
 
   private UserRepository userRepository;
+  private UserPrincipalCache userPrincipalCache;
 
-  public CustomUserDetailsService(UserRepository userRepository, OpenAPI apiInfo) {
+  public CustomUserDetailsService(UserRepository userRepository, OpenAPI apiInfo,
+      UserPrincipalCache userPrincipalCache) {
     this.userRepository = userRepository;
+    this.userPrincipalCache = userPrincipalCache;
   }
 
-  // could return the UserDetails or the CustomUserDetails
+  /// login path: principal and password hash from one projection query, never
+  /// cached and never a managed entity
   @Override
   public CustomUserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
-    /// Create a Supplier that fetches user when needed.
-    /// Database call only happens when first accessing user data.
-    /// Useful when only username/password are needed for auth
-    Supplier<UserModel> userLoader = () -> userRepository.findByEmail(email)
+    UserCredentials credentials = userRepository.findCredentialsByEmail(email)
         .orElseThrow(() -> new UsernameNotFoundException("User not found"));
 
-    return new CustomUserDetails(userLoader);
+    return new CustomUserDetails(credentials.principal(), credentials.passwordHash());
+  }
+
+  /// token path: the principal without the password hash, served from the near
+  /// cache / Redis cache on almost every authenticated request; only a miss in
+  /// both reads blog_users
+  public CustomUserDetails loadPrincipal(String email) throws UsernameNotFoundException {
+    UserPrincipal principal = userPrincipalCache.get(email, () -> userRepository.findPrincipalByEmail(email)
+        .orElseThrow(() -> new UsernameNotFoundException("User not found")));
+
+    return new CustomUserDetails(principal);
   }
 
 }
@@ -3,29 +3,184 @@ package com.johnson.blog.service;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
 
 @Service
 public class GeoLocationService {
+  private static final Logger logger = LoggerFactory.getLogger(GeoLocationService.class);
+  private static final String UNKNOWN = "Unknown";
+
+  private final IpLocationDatabase ipLocationDatabase;
+  private final ObjectMapper objectMapper;
+
+  // ip-api.com is only asked when the local database has no answer
+  @Value("${application.geolocation.remote-fallback:true}")
+  private boolean remoteFallback = true;
+
+  @Value("${application.geolocation.remote.connect-timeout-ms:500}")
+  private int connectTimeoutMs = 500;
+
+  @Value("${application.geolocation.remote.read-timeout-ms:1000}")
+  private int readTimeoutMs = 1000;
+
+  /// IP -> location answers of the remote provider. Concurrent lookups of the
+  /// same IP share one in-flight future; failed lookups are not cached.
+  private final AsyncCache<String, String> remoteCache;
+  private final ThreadPoolExecutor remoteExecutor;
+  private final CircuitBreaker circuitBreaker;
+
+  public GeoLocationService(
+      IpLocationDatabase ipLocationDatabase,
+      ObjectMapper objectMapper,
+      MeterRegistry meterRegistry,
+      @Value("${application.geolocation.remote.cache-size:50000}") long cacheSize,
+      @Value("${application.geolocation.remote.cache-ttl-seconds:86400}") long cacheTtlSeconds,
+      @Value("${application.geolocation.remote.max-concurrency:4}") int maxConcurrency,
+      @Value("${application.geolocation.remote.failure-threshold:5}") int failureThreshold,
+      @Value("${application.geolocation.remote.open-duration-ms:30000}") long openDurationMs) {
+    this.ipLocationDatabase = ipLocationDatabase;
+    this.objectMapper = objectMapper;
+    this.remoteExecutor = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 60, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>(maxConcurrency * 64), new CustomizableThreadFactory("geolocation-"),
+        new ThreadPoolExecutor.AbortPolicy());
+    this.remoteExecutor.allowCoreThreadTimeOut(true);
+    this.remoteCache = Caffeine.newBuilder()
+        .maximumSize(cacheSize)
+        .expireAfterWrite(cacheTtlSeconds, TimeUnit.SECONDS)
+        .executor(remoteExecutor)
+        .recordStats()
+        .buildAsync();
+    this.circuitBreaker = new CircuitBreaker(failureThreshold, openDurationMs);
+    CaffeineCacheMetrics.monitor(meterRegistry, this.remoteCache.synchronous(), "geolocation.remote");
+  }
+
   public String geoLocationFromIP(String ipAddress) {
+    Optional<String> localLocation = ipLocationDatabase.lookup(ipAddress);
+    if (localLocation.isPresent()) {
+      return localLocation.get();
+    }
+    if (!remoteFallback || ipAddress == null) {
+      return UNKNOWN;
+    }
+    return _remoteGeoLocationFromIP(ipAddress);
+  }
+
+  private String _remoteGeoLocationFromIP(String ipAddress) {
+    CompletableFuture<String> cached = remoteCache.getIfPresent(ipAddress);
+    if (cached == null && !circuitBreaker.allowRequest()) {
+      // provider is failing, answer immediately instead of queueing up
+      return UNKNOWN;
+    }
+
+    try {
+      CompletableFuture<String> location = cached != null ? cached
+          : remoteCache.get(ipAddress, (ip, executor) -> CompletableFuture.supplyAsync(() -> _fetch(ip), executor));
+      return location.get(connectTimeoutMs + readTimeoutMs, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return UNKNOWN;
+    } catch (Exception e) {
+      return UNKNOWN;
+    }
+  }
+
+  /// runs on the geolocation executor; throws so that failures are not cached
+  private String _fetch(String ipAddress) {
     try {
       URL url = new URL("http://ip-api.com/json/" + ipAddress);
       HttpURLConnection connection = (HttpURLConnection) url.openConnection();
       connection.setRequestMethod("GET");
+      connection.setConnectTimeout(connectTimeoutMs);
+      connection.setReadTimeout(readTimeoutMs);
 
       try (InputStream input = connection.getInputStream()) {
-        ObjectMapper mapper = new ObjectMapper();
-        JsonNode node = mapper.readTree(input);
-        return node.get("city").asText() + ", " +
-            node.get("regionName").asText() + ", " +
-            node.get("country").asText();
+        JsonNode node = objectMapper.readTree(input);
+        circuitBreaker.onSuccess();
+        if (!"success".equals(node.path("status").asText())) {
+          // private/reserved ranges: a valid answer, not a provider failure
+          return UNKNOWN;
+        }
+        return node.path("city").asText() + ", " +
+            node.path("regionName").asText() + ", " +
+            node.path("country").asText();
+      } finally {
+        connection.disconnect();
       }
     } catch (Exception e) {
-      return "Unknown";
+      circuitBreaker.onFailure();
+      logger.debug("Remote geolocation lookup failed for {}: {}", ipAddress, e.getMessage());
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    remoteExecutor.shutdownNow();
+  }
+
+  /// Opens after consecutive failures and rejects calls until the open window
+  /// passes. Then exactly one call probes the provider (half-open): it closes
+  /// the circuit on success and reopens it at once on failure. The probe moves
+  /// the window on as it starts, so everyone else keeps being rejected, and a
+  /// probe that never reports back only delays the next one by a window.
+  private static class CircuitBreaker {
+    private final int failureThreshold;
+    private final long openDurationMs;
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    /// 0 while closed
+    private final AtomicLong openUntil = new AtomicLong();
+
+    CircuitBreaker(int failureThreshold, long openDurationMs) {
+      this.failureThreshold = failureThreshold;
+      this.openDurationMs = openDurationMs;
+    }
+
+    boolean allowRequest() {
+      long until = openUntil.get();
+      if (until == 0) {
+        return true;
+      }
+      long now = System.currentTimeMillis();
+      return now >= until && openUntil.compareAndSet(until, now + openDurationMs);
+    }
+
+    void onSuccess() {
+      consecutiveFailures.set(0);
+      openUntil.set(0);
+    }
+
+    void onFailure() {
+      if (openUntil.get() != 0) {
+        // the probe (or a call started before the circuit opened) failed
+        openUntil.set(System.currentTimeMillis() + openDurationMs);
+        return;
+      }
+      if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+        openUntil.set(System.currentTimeMillis() + openDurationMs);
+        consecutiveFailures.set(0);
+        logger.warn("Remote geolocation provider failing, circuit open for {} ms", openDurationMs);
+      }
     }
   }
 }
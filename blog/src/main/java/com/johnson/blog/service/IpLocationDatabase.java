@@ -0,0 +1,273 @@
+package com.johnson.blog.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/*
+ * Offline IP -> location lookup.
+ *
+ * The dataset is a local text file with one range per line:
+ *   start_ip,end_ip,location
+ * e.g. "102.88.0.0,102.88.255.255,Lagos, Lagos, Nigeria". IPv4 and IPv6
+ * ranges may be mixed; lines starting with '#' are ignored.
+ *
+ * The text file is parsed once and compiled into a binary file of sorted,
+ * fixed-width range records (IPv4, then IPv6), which is memory-mapped: the
+ * ranges live off-heap in the page cache and a lookup is a binary search over
+ * the mapped buffer, with no allocation beyond parsing the address. Only the
+ * deduplicated location names stay on the heap. Ranges are expected not to
+ * overlap.
+ * The file is polled for changes and a new table is swapped in atomically,
+ * readers never block.
+ */
+@Component
+public class IpLocationDatabase {
+  private static final Logger logger = LoggerFactory.getLogger(IpLocationDatabase.class);
+
+  // only literal addresses are looked up, so InetAddress never resolves a host
+  private static final Pattern IPV4_LITERAL = Pattern.compile("^\\d{1,3}(\\.\\d{1,3}){3}$");
+  private static final Pattern IPV6_LITERAL = Pattern.compile("^[0-9a-fA-F:.]*:[0-9a-fA-F:.]*$");
+  private static final int V4_RECORD = 12;
+  private static final int V6_RECORD = 40;
+
+  private final Path databasePath;
+  private volatile FileTime loadedVersion;
+  private volatile RangeTable table = RangeTable.EMPTY;
+
+  public IpLocationDatabase(@Value("${application.geolocation.database-path:}") String databasePath) {
+    this.databasePath = databasePath == null || databasePath.isBlank() ? null : Path.of(databasePath);
+    reloadIfChanged();
+  }
+
+  public boolean isEnabled() {
+    return databasePath != null;
+  }
+
+  public int size() {
+    return table.size();
+  }
+
+  public Optional<String> lookup(String ipAddress) {
+    RangeTable current = table;
+    if (ipAddress == null || current.size() == 0) {
+      return Optional.empty();
+    }
+
+    byte[] address = _parseLiteral(ipAddress.trim());
+    if (address == null) {
+      return Optional.empty();
+    }
+    return Optional.ofNullable(current.find(address));
+  }
+
+  /// polled by the scheduler; rebuilds the table only when the file changed
+  @Scheduled(fixedDelayString = "${application.geolocation.reload-interval-ms:60000}")
+  public void reloadIfChanged() {
+    if (databasePath == null) {
+      return;
+    }
+    try {
+      FileTime modified = Files.getLastModifiedTime(databasePath);
+      if (modified.equals(loadedVersion)) {
+        return;
+      }
+      RangeTable loaded = _load(databasePath);
+      table = loaded;
+      loadedVersion = modified;
+      logger.info("Loaded {} ip ranges from {}", loaded.size(), databasePath);
+    } catch (IOException | RuntimeException e) {
+      // keep serving the previous table
+      logger.warn("Could not load ip location database {}: {}", databasePath, e.getMessage());
+    }
+  }
+
+  private static byte[] _parseLiteral(String ipAddress) {
+    if (!IPV4_LITERAL.matcher(ipAddress).matches() && !IPV6_LITERAL.matcher(ipAddress).matches()) {
+      return null;
+    }
+    try {
+      return InetAddress.getByName(ipAddress).getAddress();
+    } catch (UnknownHostException e) {
+      return null;
+    }
+  }
+
+  private static RangeTable _load(Path path) throws IOException {
+    List<Range> v4 = new ArrayList<>();
+    List<Range> v6 = new ArrayList<>();
+    Map<String, Integer> locationIndex = new HashMap<>();
+    List<String> locations = new ArrayList<>();
+
+    try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+      int lineNumber = 0;
+      String line;
+      while ((line = reader.readLine()) != null) {
+        lineNumber++;
+        if (line.isBlank() || line.startsWith("#")) {
+          continue;
+        }
+
+        String[] parts = line.split(",", 3);
+        if (parts.length < 3) {
+          throw new IllegalArgumentException("malformed line " + lineNumber);
+        }
+        byte[] start = _parseLiteral(parts[0].trim());
+        byte[] end = _parseLiteral(parts[1].trim());
+        if (start == null || end == null || start.length != end.length) {
+          throw new IllegalArgumentException("invalid range on line " + lineNumber);
+        }
+        String location = parts[2].trim();
+        int locationId = locationIndex.computeIfAbsent(location, key -> {
+          locations.add(key);
+          return locations.size() - 1;
+        });
+
+        Range range = new Range(_high(start), _low(start), _high(end), _low(end), locationId);
+        (start.length == 4 ? v4 : v6).add(range);
+      }
+    }
+
+    return _compile(v4, v6, locations.toArray(new String[0]));
+  }
+
+  /// writes the sorted ranges to a fixed-width binary file and maps it; the
+  /// parsed lists are garbage once this returns
+  private static RangeTable _compile(List<Range> v4, List<Range> v6, String[] locations) throws IOException {
+    Comparator<Range> byStart = (a, b) -> _compare(a.startHigh(), a.startLow(), b.startHigh(), b.startLow());
+    v4.sort(byStart);
+    v6.sort(byStart);
+
+    long v6Offset = (long) v4.size() * V4_RECORD;
+    long size = v6Offset + (long) v6.size() * V6_RECORD;
+    if (size > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("ip location database too large to map: " + size + " bytes");
+    }
+
+    Path compiled = Files.createTempFile("ip-ranges-", ".bin");
+    try (FileChannel channel = FileChannel.open(compiled, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+      for (Range range : v4) {
+        buffer.putInt((int) range.startLow()).putInt((int) range.endLow()).putInt(range.location());
+      }
+      for (Range range : v6) {
+        buffer.putLong(range.startHigh()).putLong(range.startLow())
+            .putLong(range.endHigh()).putLong(range.endLow())
+            .putInt(range.location()).putInt(0);
+      }
+      return new RangeTable(buffer.asReadOnlyBuffer(), v4.size(), (int) v6Offset, v6.size(), locations);
+    } finally {
+      // the mapping outlives the file on POSIX; elsewhere remove it at exit
+      try {
+        Files.delete(compiled);
+      } catch (IOException e) {
+        compiled.toFile().deleteOnExit();
+      }
+    }
+  }
+
+  /// upper 64 bits of the address as an unsigned value (0 for IPv4)
+  private static long _high(byte[] address) {
+    if (address.length == 4) {
+      return 0L;
+    }
+    return ByteBuffer.wrap(address, 0, 8).getLong();
+  }
+
+  /// lower 64 bits of the address (the whole address for IPv4)
+  private static long _low(byte[] address) {
+    if (address.length == 4) {
+      return ByteBuffer.wrap(address).getInt() & 0xFFFFFFFFL;
+    }
+    return ByteBuffer.wrap(address, 8, 8).getLong();
+  }
+
+  private static int _compare(long highA, long lowA, long highB, long lowB) {
+    int high = Long.compareUnsigned(highA, highB);
+    return high != 0 ? high : Long.compareUnsigned(lowA, lowB);
+  }
+
+  private record Range(long startHigh, long startLow, long endHigh, long endLow, int location) {
+  }
+
+  /*
+   * Ranges sorted by start address, read in place from the mapped file with
+   * absolute gets (no shared position, so readers need no locking):
+   *   IPv4 records: start int, end int, location int             (12 bytes)
+   *   IPv6 records: start high/low long, end high/low long,
+   *                 location int, padding int                     (40 bytes)
+   * IPv4 addresses are unsigned ints; their high half is 0. Locations are
+   * deduplicated into a small heap table indexed by the record's location.
+   */
+  private record RangeTable(ByteBuffer ranges, int v4Count, int v6Offset, int v6Count, String[] locations) {
+    static final RangeTable EMPTY = new RangeTable(ByteBuffer.allocate(0), 0, 0, 0, new String[0]);
+
+    int size() {
+      return v4Count + v6Count;
+    }
+
+    String find(byte[] address) {
+      boolean v4 = address.length == 4;
+      long high = _high(address);
+      long low = _low(address);
+      int index = _floor(v4, v4 ? v4Count : v6Count, high, low);
+      if (index < 0) {
+        return null;
+      }
+      int record = _record(v4, index);
+      long endHigh = v4 ? 0L : ranges.getLong(record + 16);
+      long endLow = v4 ? ranges.getInt(record + 4) & 0xFFFFFFFFL : ranges.getLong(record + 24);
+      if (_compare(high, low, endHigh, endLow) > 0) {
+        return null;
+      }
+      return locations[ranges.getInt(record + (v4 ? 8 : 32))];
+    }
+
+    /// index of the last range starting at or before the address, -1 if none
+    private int _floor(boolean v4, int count, long high, long low) {
+      int lo = 0;
+      int hi = count - 1;
+      int found = -1;
+      while (lo <= hi) {
+        int mid = (lo + hi) >>> 1;
+        int record = _record(v4, mid);
+        long startHigh = v4 ? 0L : ranges.getLong(record);
+        long startLow = v4 ? ranges.getInt(record) & 0xFFFFFFFFL : ranges.getLong(record + 8);
+        if (_compare(startHigh, startLow, high, low) <= 0) {
+          found = mid;
+          lo = mid + 1;
+        } else {
+          hi = mid - 1;
+        }
+      }
+      return found;
+    }
+
+    private int _record(boolean v4, int index) {
+      return v4 ? index * V4_RECORD : v6Offset + index * V6_RECORD;
+    }
+  }
+
+}
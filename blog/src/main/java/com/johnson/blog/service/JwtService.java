@@ -3,19 +3,20 @@ package com.johnson.blog.service;
 import java.security.Key;
 import java.util.Date;
 import java.util.Map;
+import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
 import com.johnson.blog.filters.CustomUserDetails;
-import com.johnson.database.model.UserSessionModel;
 import com.johnson.database.repository.UserSessionRepository;
 import com.johnson.utilities.config.ConfigUtils;
 import com.johnson.utilities.exceptions.UnauthorizedException;
 
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.SignatureAlgorithm;
@@ -24,6 +25,8 @@ import io.jsonwebtoken.security.Keys;
 @Service
 public class JwtService {
   private final UserSessionRepository userSessionRepository;
+  private final VerifiedTokenCache verifiedTokenCache;
+  private final RedisSessionService redisSessionService;
 
   @Value("${application.security.jwt.secret-key}")
   private String secretKey = ConfigUtils.JWT_SECRET;
@@ -40,8 +43,15 @@ public class JwtService {
   private final Key JWTKEY = Keys.hmacShaKeyFor(secretKey.getBytes());
   private final Key JWTREFRESHKEY = Keys.hmacShaKeyFor(refreshSecretKey.getBytes());
 
-  public JwtService(UserSessionRepository userSessionRepository) {
+  // parsers are immutable and thread-safe, so one per key is built and shared
+  private final JwtParser JWTPARSER = Jwts.parserBuilder().setSigningKey(JWTKEY).build();
+  private final JwtParser JWTREFRESHPARSER = Jwts.parserBuilder().setSigningKey(JWTREFRESHKEY).build();
+
+  public JwtService(UserSessionRepository userSessionRepository, VerifiedTokenCache verifiedTokenCache,
+      RedisSessionService redisSessionService) {
     this.userSessionRepository = userSessionRepository;
+    this.verifiedTokenCache = verifiedTokenCache;
+    this.redisSessionService = redisSessionService;
   }
 
   /*
@@ -73,16 +83,13 @@ public class JwtService {
 
   public Claims validateToken(String token, String tokenType) throws JwtException {
     try {
-      Key currentKey;
+      JwtParser currentParser;
       if (tokenType.equals("access")) {
-        currentKey = JWTKEY;
+        currentParser = JWTPARSER;
       } else {
-        currentKey = JWTREFRESHKEY;
+        currentParser = JWTREFRESHPARSER;
       }
-      return Jwts
-          .parserBuilder()
-          .setSigningKey(currentKey)
-          .build()
+      return currentParser
           .parseClaimsJws(token)
           .getBody();
     } catch (MalformedJwtException e) {
@@ -90,27 +97,46 @@ public class JwtService {
     }
   }
 
-  public boolean isTokenValid(String token, UserDetails userDetails, String TokenType) {
-    final String email = extractClaim(token, "email", TokenType);
-    return (email.equals(userDetails.getUsername())) && !isTokenExpired(token, TokenType);
+  /*
+   * Verifies the token signature and expiry once and returns the claims
+   * wrapped in a VerifiedToken, so callers can read every claim they need
+   * without recomputing the HMAC.
+   * Tokens seen before are answered from the VerifiedTokenCache.
+   */
+  public VerifiedToken verify(String token, String tokenType) throws JwtException {
+    Claims claims = verifiedTokenCache.get(token, tokenType);
+    if (claims == null) {
+      claims = validateToken(token, tokenType);
+      verifiedTokenCache.put(token, tokenType, claims);
+    }
+    return new VerifiedToken(token, tokenType, claims);
   }
 
-  private boolean isTokenExpired(String token, String tokenType) {
-    return extractExpiration(token, tokenType).before(new Date());
+  /*
+   * Drops a token from the verified-token cache, e.g. on logout.
+   */
+  public void evict(VerifiedToken verifiedToken) {
+    verifiedTokenCache.evict(verifiedToken.token(), verifiedToken.tokenType());
   }
 
-  public boolean isTokenRevoked(String token, String TokenType) {
-    String deviceId = extractClaim(token, "deviceId", TokenType);
-    String userId = extractClaim(token, "userId", TokenType);
-    String jti = extractClaim(token, "jti", TokenType);
-
-    return userSessionRepository
-        .findUserSession(jti, userId, deviceId).map(UserSessionModel::isLoggedOut)
-        .orElse(true);
+  public boolean isTokenValid(VerifiedToken verifiedToken, UserDetails userDetails) {
+    final String email = verifiedToken.email();
+    return email != null && email.equals(userDetails.getUsername()) && !verifiedToken.isExpired();
   }
 
-  private Date extractExpiration(String token, String tokenType) {
-    return validateToken(token, tokenType).getExpiration();
+  /*
+   * Answered from the Redis session hash first; Postgres is only queried when
+   * the session is not in Redis or Redis is unreachable.
+   */
+  public boolean isTokenRevoked(VerifiedToken verifiedToken) {
+    Optional<Boolean> revoked = redisSessionService.findRevocationStatus(
+        verifiedToken.userId(), verifiedToken.deviceId(), verifiedToken.jti());
+    if (revoked.isPresent()) {
+      return revoked.get();
+    }
+
+    return !userSessionRepository.isSessionLive(verifiedToken.jti(), verifiedToken.userId(),
+        verifiedToken.deviceId());
   }
 
   public String extractClaim(String token, String claimName, String tokenType) {
@@ -0,0 +1,196 @@
+package com.johnson.blog.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+/*
+ * Write-behind view and like counters of posts.
+ *
+ * Reads and likes only add to in-memory LongAdders (striped across cells, so
+ * a hot post does not serialize its readers); every flush-interval-ms the
+ * accumulated deltas are written to blog_post_counters in a few batched
+ * statements, one row per post touched rather than one write per event.
+ * Deltas not yet flushed are lost if the node crashes; a failed flush keeps
+ * them for the next one.
+ *
+ * The pending map is swapped out at each flush instead of drained in place,
+ * so adders are never removed while a request may still be adding to them;
+ * the retired map is drained once more at the next flush to pick up any add
+ * that raced with the swap.
+ */
+@Service
+public class PostCounterService {
+  private static final Logger logger = LoggerFactory.getLogger(PostCounterService.class);
+
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final boolean nativeBatchUpdate;
+  private final int batchSize;
+  private final AtomicReference<Map<String, Pending>> pending = new AtomicReference<>(new ConcurrentHashMap<>());
+  private volatile Map<String, Pending> retired = Map.of();
+  private final Timer flushTimer;
+  private final Counter flushedRows;
+  private final Counter failedFlushes;
+
+  public PostCounterService(
+      JdbcTemplate jdbcTemplate,
+      TransactionTemplate transactionTemplate,
+      MeterRegistry meterRegistry,
+      // UPDATE ... FROM (VALUES ...) is PostgreSQL syntax
+      @Value("${application.post-counters.native-batch-update:true}") boolean nativeBatchUpdate,
+      @Value("${application.post-counters.batch-size:500}") int batchSize) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = transactionTemplate;
+    this.nativeBatchUpdate = nativeBatchUpdate;
+    this.batchSize = batchSize;
+    this.flushTimer = meterRegistry.timer("post.counters.flush.duration");
+    this.flushedRows = meterRegistry.counter("post.counters.flushed.rows");
+    this.failedFlushes = meterRegistry.counter("post.counters.flush.failures");
+    meterRegistry.gauge("post.counters.pending", pending, p -> p.get().size());
+  }
+
+  public void recordView(String postId) {
+    _pending(postId).views.increment();
+  }
+
+  /// delta is +1 for a like and -1 for an unlike
+  public void recordLike(String postId, long delta) {
+    _pending(postId).likes.add(delta);
+  }
+
+  /// deltas of this node not yet flushed, to add to the persisted totals;
+  /// unflushed deltas of other nodes show up after their next flush
+  public long pendingViews(String postId) {
+    return _sum(postId, true);
+  }
+
+  public long pendingLikes(String postId) {
+    return _sum(postId, false);
+  }
+
+  @Scheduled(fixedDelayString = "${application.post-counters.flush-interval-ms:5000}")
+  public synchronized void flush() {
+    Map<String, Pending> previous = retired;
+    retired = pending.getAndSet(new ConcurrentHashMap<>());
+
+    // sorted by post id so concurrent flushes of several nodes lock rows in
+    // the same order and cannot deadlock
+    Map<String, long[]> deltas = new TreeMap<>();
+    _drain(previous, deltas);
+    _drain(retired, deltas);
+    if (deltas.isEmpty()) {
+      return;
+    }
+
+    try {
+      flushTimer.record(() -> transactionTemplate.executeWithoutResult(status -> _write(deltas)));
+      flushedRows.increment(deltas.size());
+    } catch (DataAccessException | TransactionException e) {
+      // TransactionException: no connection to begin with, or a failed commit
+      failedFlushes.increment();
+      logger.warn("Could not flush {} post counters, retrying next flush: {}", deltas.size(), e.getMessage());
+      deltas.forEach((postId, delta) -> {
+        Pending retry = _pending(postId);
+        retry.views.add(delta[0]);
+        retry.likes.add(delta[1]);
+      });
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    // flush twice: the second drains the map retired by the first
+    flush();
+    flush();
+  }
+
+  private void _write(Map<String, long[]> deltas) {
+    List<Object[]> rows = new ArrayList<>(batchSize);
+    for (Map.Entry<String, long[]> entry : deltas.entrySet()) {
+      rows.add(new Object[] { entry.getValue()[0], entry.getValue()[1], entry.getKey() });
+      if (rows.size() == batchSize) {
+        _writeBatch(rows);
+        rows.clear();
+      }
+    }
+    if (!rows.isEmpty()) {
+      _writeBatch(rows);
+    }
+  }
+
+  private void _writeBatch(List<Object[]> rows) {
+    if (!nativeBatchUpdate) {
+      jdbcTemplate.batchUpdate("UPDATE blog_post_counters SET view_count = view_count + ?, "
+          + "like_count = like_count + ? WHERE post_id = ?", rows);
+      return;
+    }
+
+    // one statement per batch: a single round trip and a single plan
+    StringBuilder sql = new StringBuilder("UPDATE blog_post_counters c SET "
+        + "view_count = c.view_count + v.views, like_count = c.like_count + v.likes FROM (VALUES ");
+    Object[] args = new Object[rows.size() * 3];
+    for (int i = 0; i < rows.size(); i++) {
+      sql.append(i == 0 ? "" : ", ").append("(CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS UUID))");
+      System.arraycopy(rows.get(i), 0, args, i * 3, 3);
+    }
+    sql.append(") AS v(views, likes, post_id) WHERE c.post_id = v.post_id");
+    jdbcTemplate.update(sql.toString(), args);
+  }
+
+  private static void _drain(Map<String, Pending> from, Map<String, long[]> deltas) {
+    from.forEach((postId, counts) -> {
+      // sum then subtract what was read: an add racing with this stays behind
+      // in the adder for the next drain instead of being reset away
+      long views = counts.views.sum();
+      long likes = counts.likes.sum();
+      if (views == 0 && likes == 0) {
+        return;
+      }
+      counts.views.add(-views);
+      counts.likes.add(-likes);
+      long[] delta = deltas.computeIfAbsent(postId, id -> new long[2]);
+      delta[0] += views;
+      delta[1] += likes;
+    });
+  }
+
+  private Pending _pending(String postId) {
+    return pending.get().computeIfAbsent(postId, id -> new Pending());
+  }
+
+  private long _sum(String postId, boolean views) {
+    long sum = 0;
+    for (Map<String, Pending> map : List.of(pending.get(), retired)) {
+      Pending counts = map.get(postId);
+      if (counts != null) {
+        sum += views ? counts.views.sum() : counts.likes.sum();
+      }
+    }
+    return sum;
+  }
+
+  private static final class Pending {
+    private final LongAdder views = new LongAdder();
+    private final LongAdder likes = new LongAdder();
+  }
+}
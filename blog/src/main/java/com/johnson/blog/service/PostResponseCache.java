@@ -0,0 +1,188 @@
+package com.johnson.blog.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.johnson.utilities.dtos.CursorPaginationMeta;
+import com.johnson.utilities.dtos.postDtos.PostResponseDto;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/*
+ * Rendered single posts and feed pages, with their ETags.
+ *
+ * Entries hold the response data without view/like counts (those change on
+ * every read and are added per request) and a weak ETag: a hash of that
+ * data, plus the post's updated_at for single posts. A conditional GET whose
+ * If-None-Match matches the cached ETag is answered 304 from memory.
+ *
+ * Every entry is keyed under the current generation of its scope (a post,
+ * an author's feed, a genre's feed). Invalidating a scope moves it to a new
+ * generation, so stale entries become unreachable, including one being
+ * loaded concurrently from a read that started before the write committed.
+ * Invalidations are broadcast over Redis pub/sub to the other nodes; the ttl
+ * bounds staleness if a message is missed.
+ */
+@Component
+public class PostResponseCache implements MessageListener {
+  public static final String INVALIDATION_CHANNEL = "post-cache-invalidation";
+
+  private static final Logger logger = LoggerFactory.getLogger(PostResponseCache.class);
+
+  private final ObjectMapper objectMapper;
+  private final StringRedisTemplate stringRedisTemplate;
+  private final boolean broadcastInvalidations;
+  private final Cache<String, CachedPost> posts;
+  private final Cache<String, CachedPage> pages;
+  /// scope -> generation; an evicted scope simply starts a new generation
+  private final Cache<String, Long> generations;
+  private final AtomicLong nextGeneration = new AtomicLong(System.currentTimeMillis() * 1000);
+
+  public PostResponseCache(
+      ObjectMapper objectMapper,
+      StringRedisTemplate stringRedisTemplate,
+      MeterRegistry meterRegistry,
+      @Value("${application.post-cache.post.maximum-size:10000}") long postMaximumSize,
+      @Value("${application.post-cache.post.ttl-seconds:600}") long postTtlSeconds,
+      @Value("${application.post-cache.feed.maximum-size:2000}") long feedMaximumSize,
+      @Value("${application.post-cache.feed.ttl-seconds:60}") long feedTtlSeconds,
+      @Value("${application.post-cache.pubsub-enabled:true}") boolean broadcastInvalidations) {
+    this.objectMapper = objectMapper;
+    this.stringRedisTemplate = stringRedisTemplate;
+    this.broadcastInvalidations = broadcastInvalidations;
+    this.posts = Caffeine.newBuilder()
+        .maximumSize(postMaximumSize)
+        .expireAfterWrite(postTtlSeconds, TimeUnit.SECONDS)
+        .recordStats()
+        .build();
+    this.pages = Caffeine.newBuilder()
+        .maximumSize(feedMaximumSize)
+        .expireAfterWrite(feedTtlSeconds, TimeUnit.SECONDS)
+        .recordStats()
+        .build();
+    this.generations = Caffeine.newBuilder()
+        .maximumSize(100_000)
+        .expireAfterAccess(1, TimeUnit.HOURS)
+        .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, this.posts, "post.responses");
+    CaffeineCacheMetrics.monitor(meterRegistry, this.pages, "post.feed.responses");
+  }
+
+  public static String postScope(String postId) {
+    return "post:" + postId;
+  }
+
+  public static String authorScope(String authorId) {
+    return "author:" + authorId;
+  }
+
+  public static String genreScope(String genre) {
+    return "genre:" + genre;
+  }
+
+  /// the cached post, loading it when absent; loader exceptions (e.g. post
+  /// not found) propagate and nothing is cached
+  public CachedPost getPost(String postId, Supplier<PostResponseDto> loader) {
+    String scope = postScope(postId);
+    return posts.get(scope + "@" + _generation(scope), key -> {
+      PostResponseDto post = loader.get();
+      long version = post.updatedAt() == null ? 0 : post.updatedAt().toInstant().toEpochMilli();
+      return new CachedPost(post, "W/\"" + version + "-" + _hash(post) + "\"");
+    });
+  }
+
+  /// the cached page of the feed scope; pageKey tells pages of one feed apart
+  public CachedPage getPage(String scope, String pageKey, Supplier<Page> loader) {
+    return pages.get(scope + "@" + _generation(scope) + "|" + pageKey, key -> {
+      Page page = loader.get();
+      return new CachedPage(page.posts(), page.meta(), "W/\"" + _hash(page) + "\"");
+    });
+  }
+
+  /// call after the write has committed; scopes are postScope/authorScope/genreScope
+  public void invalidate(String... scopes) {
+    for (String scope : scopes) {
+      generations.put(scope, nextGeneration.incrementAndGet());
+    }
+    if (!broadcastInvalidations) {
+      return;
+    }
+    try {
+      stringRedisTemplate.convertAndSend(INVALIDATION_CHANNEL, String.join("\n", scopes));
+    } catch (RuntimeException e) {
+      // other nodes still drop their entries on ttl
+      logger.warn("Could not propagate post cache invalidation: {}", e.getMessage());
+    }
+  }
+
+  /// invalidation broadcast by another node (or this one)
+  @Override
+  public void onMessage(Message message, byte[] pattern) {
+    for (String scope : new String(message.getBody(), StandardCharsets.UTF_8).split("\n")) {
+      generations.put(scope, nextGeneration.incrementAndGet());
+    }
+  }
+
+  /// If-None-Match check: weak comparison, any of a list, or *
+  public static boolean matches(String ifNoneMatch, String etag) {
+    if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+      return false;
+    }
+    String opaque = _opaque(etag);
+    for (String candidate : ifNoneMatch.split(",")) {
+      String trimmed = candidate.trim();
+      if (trimmed.equals("*") || _opaque(trimmed).equals(opaque)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static String _opaque(String etag) {
+    return etag.startsWith("W/") ? etag.substring(2) : etag;
+  }
+
+  private long _generation(String scope) {
+    return generations.get(scope, key -> nextGeneration.incrementAndGet());
+  }
+
+  /// content hash of the serialized data: equal responses share an ETag
+  /// across nodes and restarts
+  private String _hash(Object data) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(data));
+      return Base64.getUrlEncoder().withoutPadding().encodeToString(digest).substring(0, 22);
+    } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+      throw new IllegalStateException("Could not hash post response", e);
+    }
+  }
+
+  /// page data as loaded from the database, counts left out
+  public record Page(List<PostResponseDto> posts, CursorPaginationMeta meta) {
+  }
+
+  public record CachedPost(PostResponseDto post, String etag) {
+  }
+
+  public record CachedPage(List<PostResponseDto> posts, CursorPaginationMeta meta, String etag) {
+  }
+}
@@ -0,0 +1,467 @@
+package com.johnson.blog.service;
+
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.johnson.blog.search.PostSearchEngine;
+import com.johnson.blog.search.SearchHit;
+import com.johnson.database.model.PostCounterModel;
+import com.johnson.database.model.PostModel;
+import com.johnson.database.projection.PostDetail;
+import com.johnson.database.projection.PostSummary;
+import com.johnson.database.repository.PostCounterRepository;
+import com.johnson.database.repository.PostLikeRepository;
+import com.johnson.database.repository.PostRepository;
+import com.johnson.database.repository.UserRepository;
+import com.johnson.utilities.PageCursor;
+import com.johnson.utilities.UUIDGenerator;
+import com.johnson.utilities.dtos.BaseApiResponse;
+import com.johnson.utilities.dtos.CursorPaginationMeta;
+import com.johnson.utilities.dtos.postDtos.CreatePostDto;
+import com.johnson.utilities.dtos.postDtos.PostResponseDto;
+import com.johnson.utilities.dtos.postDtos.UpdatePostDto;
+import com.johnson.utilities.exceptions.BadRequestException;
+import com.johnson.utilities.exceptions.ConflictException;
+import com.johnson.utilities.exceptions.ForbiddenException;
+import com.johnson.utilities.exceptions.NotFoundException;
+
+@Service
+@Transactional(readOnly = true)
+public class PostService {
+  // sort after every real (createdAt, id), so the first page needs no special query
+  private static final OffsetDateTime FIRST_CREATED_AT = OffsetDateTime.parse("9999-12-31T23:59:59Z");
+  private static final String FIRST_ID = "ffffffff-ffff-ffff-ffff-ffffffffffff";
+  private static final int MAX_PAGE_SIZE = 100;
+  private static final int MAX_SEARCH_RESULTS = 50;
+  private static final int MAX_QUERY_LENGTH = 200;
+
+  private PostRepository postRepository;
+  private UserRepository userRepository;
+  private PostSearchEngine postSearchEngine;
+  private PostCounterRepository postCounterRepository;
+  private PostLikeRepository postLikeRepository;
+  private PostCounterService postCounterService;
+  private TrendingService trendingService;
+  private PostResponseCache postResponseCache;
+  private boolean nativeLikeInsert;
+
+  public PostService(PostRepository postRepository, UserRepository userRepository,
+      PostSearchEngine postSearchEngine, PostCounterRepository postCounterRepository,
+      PostLikeRepository postLikeRepository, PostCounterService postCounterService,
+      TrendingService trendingService, PostResponseCache postResponseCache,
+      // INSERT ... ON CONFLICT needs PostgreSQL; off in the H2 test profile
+      @Value("${application.post-likes.native-insert:true}") boolean nativeLikeInsert) {
+    this.postRepository = postRepository;
+    this.userRepository = userRepository;
+    this.postSearchEngine = postSearchEngine;
+    this.postCounterRepository = postCounterRepository;
+    this.postLikeRepository = postLikeRepository;
+    this.postCounterService = postCounterService;
+    this.trendingService = trendingService;
+    this.postResponseCache = postResponseCache;
+    this.nativeLikeInsert = nativeLikeInsert;
+  }
+
+  @Transactional
+  public ResponseEntity<BaseApiResponse<PostResponseDto>> createPost(String authorId, CreatePostDto createPostDto) {
+    PostModel post = new PostModel();
+    post.setTitle(createPostDto.getTitle());
+    post.setContent(createPostDto.getContent());
+    post.setGenre(createPostDto.getGenre());
+    post.setThumbnail(createPostDto.getThumbnail());
+    // reference only: the insert needs the author's id, not the user row
+    post.setBlogger(userRepository.getReferenceById(authorId));
+    post.setBloggerId(authorId);
+
+    PostModel saved = _saveAndFlush(post);
+    postCounterRepository.createCounters(saved.getId());
+    _indexAfterCommit(saved);
+    _afterCommit(() -> postResponseCache.invalidate(PostResponseCache.authorScope(authorId),
+        PostResponseCache.genreScope(saved.getGenre())));
+    return ResponseEntity.status(201).body(BaseApiResponse.success(
+        "Post created successfully",
+        201,
+        _toResponse(saved)));
+  }
+
+  /// 304 when ifNoneMatch holds the cached ETag of the post, answered from
+  /// memory. No transaction (SUPPORTS), so a cache hit borrows no connection.
+  @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+  public ResponseEntity<BaseApiResponse<PostResponseDto>> getPost(String postId, String ifNoneMatch) {
+    String id = _parseId(postId);
+    PostResponseCache.CachedPost cached = postResponseCache.getPost(id, () -> {
+      PostDetail post = postRepository.findDetailById(id)
+          .orElseThrow(() -> new NotFoundException("Post not found"));
+      return new PostResponseDto(post.id(), post.title(), post.content(), post.genre(), post.thumbnail(),
+          post.bloggerId(), post.createdAt(), post.updatedAt(), null, null);
+    });
+    // a revalidated read is still a read
+    postCounterService.recordView(id);
+    trendingService.recordView(id, cached.post().genre());
+
+    if (PostResponseCache.matches(ifNoneMatch, cached.etag())) {
+      return _notModified(cached.etag());
+    }
+    // pending views include this one
+    PostResponseDto post = _withCounts(cached.post(), _persistedCounts(List.of(id)));
+    return ResponseEntity.ok()
+        .eTag(cached.etag())
+        .cacheControl(CacheControl.noCache().cachePrivate())
+        .body(BaseApiResponse.success("Post fetched successfully", 200, post));
+  }
+
+  @Transactional
+  public ResponseEntity<BaseApiResponse<PostResponseDto>> updatePost(String authorId, String postId,
+      UpdatePostDto updatePostDto) {
+    PostModel post = postRepository.findById(_parseId(postId))
+        .filter(found -> !found.getIsDeleted())
+        .orElseThrow(() -> new NotFoundException("Post not found"));
+    if (!post.getBloggerId().equals(authorId)) {
+      throw new ForbiddenException("You can only edit your own posts");
+    }
+    String previousGenre = post.getGenre();
+
+    if (updatePostDto.getTitle() != null) {
+      post.setTitle(updatePostDto.getTitle());
+    }
+    if (updatePostDto.getContent() != null) {
+      post.setContent(updatePostDto.getContent());
+    }
+    if (updatePostDto.getGenre() != null) {
+      post.setGenre(updatePostDto.getGenre());
+    }
+    if (updatePostDto.getThumbnail() != null) {
+      post.setThumbnail(updatePostDto.getThumbnail());
+    }
+
+    PostModel saved = _saveAndFlush(post);
+    _indexAfterCommit(saved);
+    _afterCommit(() -> {
+      postResponseCache.invalidate(PostResponseCache.postScope(saved.getId()),
+          PostResponseCache.authorScope(authorId), PostResponseCache.genreScope(previousGenre),
+          PostResponseCache.genreScope(saved.getGenre()));
+      // ?genre=<previous> must stop listing it
+      trendingService.changeGenre(saved.getId(), previousGenre, saved.getGenre());
+    });
+    return ResponseEntity.ok(BaseApiResponse.success(
+        "Post updated successfully",
+        200,
+        _toResponse(saved)));
+  }
+
+  @Transactional
+  public ResponseEntity<BaseApiResponse<Void>> deletePost(String authorId, String postId) {
+    String id = _parseId(postId);
+    // the genre names the feed to invalidate
+    String genre = postRepository.findLiveGenre(id)
+        .orElseThrow(() -> new NotFoundException("Post not found"));
+    if (postRepository.softDelete(id, authorId, OffsetDateTime.now()) == 0) {
+      // someone else's post, or deleted concurrently since the read above
+      if (postRepository.existsByIdAndIsDeletedFalse(id)) {
+        throw new ForbiddenException("You can only delete your own posts");
+      }
+      throw new NotFoundException("Post not found");
+    }
+    _afterCommit(() -> {
+      postSearchEngine.remove(id);
+      postResponseCache.invalidate(PostResponseCache.postScope(id), PostResponseCache.authorScope(authorId),
+          PostResponseCache.genreScope(genre));
+    });
+
+    return ResponseEntity.ok(BaseApiResponse.success("Post deleted successfully", 200, null));
+  }
+
+  /// idempotent: liking twice counts once
+  @Transactional
+  public ResponseEntity<BaseApiResponse<Void>> likePost(String userId, String postId) {
+    String id = _parseId(postId);
+    String genre = postRepository.findLiveGenre(id)
+        .orElseThrow(() -> new NotFoundException("Post not found"));
+    String likeId = UUIDGenerator.generateUUIDv7();
+    int inserted = nativeLikeInsert
+        ? postLikeRepository.insertLike(likeId, id, userId)
+        : postLikeRepository.insertLikeIfAbsent(likeId, id, userId);
+    if (inserted == 0) {
+      return ResponseEntity.ok(BaseApiResponse.success("Post already liked", 200, null));
+    }
+    // counted only for the like actually inserted
+    _afterCommit(() -> {
+      postCounterService.recordLike(id, 1);
+      trendingService.recordLike(id, genre);
+    });
+
+    return ResponseEntity.status(201).body(BaseApiResponse.success("Post liked successfully", 201, null));
+  }
+
+  @Transactional
+  public ResponseEntity<BaseApiResponse<Void>> unlikePost(String userId, String postId) {
+    String id = _parseId(postId);
+    if (postLikeRepository.deleteLike(id, userId) == 0) {
+      throw new NotFoundException("Like not found");
+    }
+    _afterCommit(() -> postCounterService.recordLike(id, -1));
+
+    return ResponseEntity.ok(BaseApiResponse.success("Post unliked successfully", 200, null));
+  }
+
+  /// most engaged-with posts of the last hours, overall or in one genre; read
+  /// from the trending snapshot, so it may lag events by a few seconds
+  public ResponseEntity<BaseApiResponse<List<PostResponseDto>>> getTrending(String genre, int size) {
+    if (size < 1 || size > trendingService.maxResults()) {
+      throw new BadRequestException("size must be between 1 and " + trendingService.maxResults());
+    }
+    String trendingGenre = genre == null || genre.isBlank() ? null : genre;
+
+    List<String> ids = trendingService.top(trendingGenre, size);
+    List<PostResponseDto> postResponseDtos = new ArrayList<>();
+    if (!ids.isEmpty()) {
+      Map<String, PostSummary> posts = postRepository.findSummariesByIds(ids).stream()
+          .collect(Collectors.toMap(PostSummary::id, Function.identity()));
+      List<String> missing = new ArrayList<>();
+      for (String id : ids) {
+        PostSummary post = posts.get(id);
+        if (post == null) {
+          missing.add(id);
+        } else {
+          postResponseDtos.add(_toResponse(post));
+        }
+      }
+      // deleted since they were ranked
+      trendingService.forget(trendingGenre, missing);
+    }
+
+    return ResponseEntity.ok(BaseApiResponse.success(
+        "Trending posts fetched successfully",
+        200,
+        postResponseDtos));
+  }
+
+  /// best matches of the query in titles and content, best first (top size only, no paging)
+  public ResponseEntity<BaseApiResponse<List<PostResponseDto>>> searchPosts(String query, int size) {
+    if (query == null || query.isBlank() || query.length() > MAX_QUERY_LENGTH) {
+      throw new BadRequestException("q must be between 1 and " + MAX_QUERY_LENGTH + " characters");
+    }
+    if (size < 1 || size > MAX_SEARCH_RESULTS) {
+      throw new BadRequestException("size must be between 1 and " + MAX_SEARCH_RESULTS);
+    }
+
+    List<SearchHit> hits = postSearchEngine.search(query, size);
+    List<PostResponseDto> postResponseDtos = new ArrayList<>();
+    if (!hits.isEmpty()) {
+      Map<String, PostSummary> posts = postRepository
+          .findSummariesByIds(hits.stream().map(SearchHit::postId).toList()).stream()
+          .collect(Collectors.toMap(PostSummary::id, Function.identity()));
+      for (SearchHit hit : hits) {
+        // a hit deleted since it was indexed is simply left out
+        PostSummary post = posts.get(hit.postId());
+        if (post != null) {
+          postResponseDtos.add(_toResponse(post));
+        }
+      }
+    }
+
+    return ResponseEntity.ok(BaseApiResponse.success(
+        "Posts fetched successfully",
+        200,
+        postResponseDtos));
+  }
+
+  /// newest first; ?cursor= takes meta.nextCursor of the previous page.
+  /// Pages are cached like posts, see getPost.
+  @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+  public ResponseEntity<BaseApiResponse<List<PostResponseDto>>> getAuthorFeed(String authorId, String cursor,
+      int size, String ifNoneMatch) {
+    String author;
+    try {
+      author = UUID.fromString(authorId).toString();
+    } catch (IllegalArgumentException e) {
+      throw new BadRequestException("Invalid author id");
+    }
+    FeedKey after = _decodeCursor(cursor);
+    _checkSize(size);
+
+    PostResponseCache.CachedPage page = postResponseCache.getPage(PostResponseCache.authorScope(author),
+        _pageKey(after, size), () -> _feedPage(postRepository.findAuthorFeed(author, after.createdAt(), after.id(),
+            PageRequest.ofSize(size + 1)), size));
+    return _feedResponse(page, ifNoneMatch);
+  }
+
+  @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+  public ResponseEntity<BaseApiResponse<List<PostResponseDto>>> getGenreFeed(String genre, String cursor,
+      int size, String ifNoneMatch) {
+    FeedKey after = _decodeCursor(cursor);
+    _checkSize(size);
+
+    PostResponseCache.CachedPage page = postResponseCache.getPage(PostResponseCache.genreScope(genre),
+        _pageKey(after, size), () -> _feedPage(postRepository.findGenreFeed(genre, after.createdAt(), after.id(),
+            PageRequest.ofSize(size + 1)), size));
+    return _feedResponse(page, ifNoneMatch);
+  }
+
+  private ResponseEntity<BaseApiResponse<List<PostResponseDto>>> _feedResponse(PostResponseCache.CachedPage page,
+      String ifNoneMatch) {
+    if (PostResponseCache.matches(ifNoneMatch, page.etag())) {
+      return _notModified(page.etag());
+    }
+
+    Map<String, long[]> counts = _persistedCounts(page.posts().stream().map(PostResponseDto::id).toList());
+    List<PostResponseDto> postResponseDtos = new ArrayList<>();
+    for (PostResponseDto post : page.posts()) {
+      postResponseDtos.add(_withCounts(post, counts));
+    }
+    return ResponseEntity.ok()
+        .eTag(page.etag())
+        .cacheControl(CacheControl.noCache().cachePrivate())
+        .body(BaseApiResponse.successWithPagination(
+            "Posts fetched successfully",
+            200,
+            postResponseDtos, page.meta()));
+  }
+
+  /// the page as cached: rows without counts, and its meta
+  private PostResponseCache.Page _feedPage(List<PostSummary> posts, int size) {
+    // one extra row tells whether there is a next page, without counting
+    boolean hasNext = posts.size() > size;
+    if (hasNext) {
+      posts = posts.subList(0, size);
+    }
+
+    List<PostResponseDto> postResponseDtos = new ArrayList<>();
+    for (PostSummary post : posts) {
+      postResponseDtos.add(new PostResponseDto(post.id(), post.title(), null, post.genre(), post.thumbnail(),
+          post.bloggerId(), post.createdAt(), post.updatedAt(), null, null));
+    }
+    String nextCursor = null;
+    if (hasNext) {
+      PostSummary last = posts.get(posts.size() - 1);
+      nextCursor = PageCursor.encode(last.createdAt().toString(), last.id());
+    }
+
+    return new PostResponseCache.Page(postResponseDtos,
+        new CursorPaginationMeta(size, nextCursor, hasNext, null, null));
+  }
+
+  private static String _pageKey(FeedKey after, int size) {
+    return after.createdAt().toInstant().toEpochMilli() + ":" + after.id() + ":" + size;
+  }
+
+  /// the counts are left out of the ETag: they change on every read, and a
+  /// client revalidating a post should not miss out on a 304 for them
+  private static <T> ResponseEntity<BaseApiResponse<T>> _notModified(String etag) {
+    return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+        .eTag(etag)
+        .cacheControl(CacheControl.noCache().cachePrivate())
+        .build();
+  }
+
+  /// post id -> {views, likes} as flushed to blog_post_counters
+  private Map<String, long[]> _persistedCounts(List<String> ids) {
+    Map<String, long[]> counts = new HashMap<>();
+    for (PostCounterModel counters : postCounterRepository.findAllById(ids)) {
+      counts.put(counters.getPostId(), new long[] { counters.getViewCount(), counters.getLikeCount() });
+    }
+    return counts;
+  }
+
+  /// cached row plus persisted counts and this node's pending deltas
+  private PostResponseDto _withCounts(PostResponseDto post, Map<String, long[]> counts) {
+    long[] persisted = counts.getOrDefault(post.id(), new long[2]);
+    return new PostResponseDto(post.id(), post.title(), post.content(), post.genre(), post.thumbnail(),
+        post.authorId(), post.createdAt(), post.updatedAt(),
+        persisted[0] + postCounterService.pendingViews(post.id()),
+        persisted[1] + postCounterService.pendingLikes(post.id()));
+  }
+
+  private PostModel _saveAndFlush(PostModel post) {
+    try {
+      // flush now so the (title, user_id) constraint fails here, not at commit
+      return postRepository.saveAndFlush(post);
+    } catch (DataIntegrityViolationException e) {
+      throw new ConflictException("You already have a post with this title");
+    }
+  }
+
+  private void _indexAfterCommit(PostModel post) {
+    String id = post.getId();
+    String title = post.getTitle();
+    String content = post.getContent();
+    long version = post.getUpdatedAt().toInstant().toEpochMilli();
+    _afterCommit(() -> postSearchEngine.index(id, title, content, version));
+  }
+
+  /// search engines only ever see committed posts
+  private void _afterCommit(Runnable action) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      action.run();
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        action.run();
+      }
+    });
+  }
+
+  private PostResponseDto _toResponse(PostModel post) {
+    return new PostResponseDto(post.getId(), post.getTitle(), post.getContent(), post.getGenre(),
+        post.getThumbnail(), post.getBloggerId(), post.getCreatedAt(), post.getUpdatedAt(), null, null);
+  }
+
+  /// feed and search rows: persisted counts plus this node's pending deltas
+  private PostResponseDto _toResponse(PostSummary post) {
+    return new PostResponseDto(post.id(), post.title(), null, post.genre(), post.thumbnail(),
+        post.bloggerId(), post.createdAt(), post.updatedAt(),
+        post.viewCount() + postCounterService.pendingViews(post.id()),
+        post.likeCount() + postCounterService.pendingLikes(post.id()));
+  }
+
+  private void _checkSize(int size) {
+    if (size < 1 || size > MAX_PAGE_SIZE) {
+      throw new BadRequestException("size must be between 1 and " + MAX_PAGE_SIZE);
+    }
+  }
+
+  /// ids are UUIDs; anything else can never match and would fail the uuid cast
+  private String _parseId(String id) {
+    try {
+      return UUID.fromString(id).toString();
+    } catch (IllegalArgumentException e) {
+      throw new NotFoundException("Post not found");
+    }
+  }
+
+  private FeedKey _decodeCursor(String cursor) {
+    if (cursor == null || cursor.isBlank()) {
+      return new FeedKey(FIRST_CREATED_AT, FIRST_ID);
+    }
+    String[] parts = PageCursor.decode(cursor, 2);
+    try {
+      return new FeedKey(OffsetDateTime.parse(parts[0]), UUID.fromString(parts[1]).toString());
+    } catch (DateTimeParseException | IllegalArgumentException e) {
+      throw new BadRequestException("Invalid cursor");
+    }
+  }
+
+  private record FeedKey(OffsetDateTime createdAt, String id) {
+  }
+}
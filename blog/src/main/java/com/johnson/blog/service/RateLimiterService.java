@@ -0,0 +1,173 @@
+package com.johnson.blog.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.johnson.utilities.exceptions.TooManyRequestsException;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/*
+ * Token-bucket rate limiting for the public auth routes (login, refresh).
+ *
+ * Every request is charged against one bucket per subject (ip, email,
+ * deviceId...). Bucket state lives in Redis and is checked and charged for
+ * all subjects at once by a Lua script, so every node enforces the same
+ * limit. When Redis is unavailable an in-memory bucket per node is used.
+ * Rejected calls surface as TooManyRequestsException (429 + Retry-After).
+ */
+@Service
+public class RateLimiterService {
+  private static final Logger logger = LoggerFactory.getLogger(RateLimiterService.class);
+
+  // script arguments must reach Lua as plain strings, not JSON
+  private final StringRedisTemplate stringRedisTemplate;
+  private final MeterRegistry meterRegistry;
+  @SuppressWarnings("rawtypes")
+  private final DefaultRedisScript<List> tokenBucketScript;
+  private final Map<String, Limit> limits;
+  private final boolean enabled;
+  private final Cache<String, LocalBucket> localBuckets;
+
+  public RateLimiterService(
+      StringRedisTemplate stringRedisTemplate,
+      MeterRegistry meterRegistry,
+      @Value("${application.rate-limit.enabled:true}") boolean enabled,
+      @Value("${application.rate-limit.login.capacity:10}") long loginCapacity,
+      @Value("${application.rate-limit.login.refill-per-minute:5}") long loginRefillPerMinute,
+      @Value("${application.rate-limit.refresh.capacity:20}") long refreshCapacity,
+      @Value("${application.rate-limit.refresh.refill-per-minute:10}") long refreshRefillPerMinute) {
+    this.stringRedisTemplate = stringRedisTemplate;
+    this.meterRegistry = meterRegistry;
+    this.enabled = enabled;
+    this.limits = Map.of(
+        "login", new Limit(loginCapacity, loginRefillPerMinute),
+        "refresh", new Limit(refreshCapacity, refreshRefillPerMinute));
+
+    this.tokenBucketScript = new DefaultRedisScript<>();
+    this.tokenBucketScript.setScriptSource(new ResourceScriptSource(new ClassPathResource("scripts/token_bucket.lua")));
+    this.tokenBucketScript.setResultType(List.class);
+
+    this.localBuckets = Caffeine.newBuilder()
+        .maximumSize(100_000)
+        .expireAfterAccess(1, TimeUnit.HOURS)
+        .build();
+  }
+
+  /// Charges one token to the bucket of every subject of the route, e.g.
+  /// acquire("login", "ip:" + ip, "email:" + email). Throws when any bucket is
+  /// empty; no bucket is charged in that case.
+  public void acquire(String route, String... subjects) {
+    Limit limit = limits.get(route);
+    if (!enabled || limit == null) {
+      return;
+    }
+
+    List<String> keys = new ArrayList<>();
+    for (String subject : subjects) {
+      if (subject != null) {
+        // hash tag keeps all buckets of a route on one cluster slot
+        keys.add("ratelimit:{" + route + "}:" + subject);
+      }
+    }
+    if (keys.isEmpty()) {
+      return;
+    }
+
+    long retryAfterMs;
+    try {
+      retryAfterMs = _acquireInRedis(keys, limit);
+    } catch (DataAccessException e) {
+      logger.warn("Redis unavailable for rate limiting, using local buckets: {}", e.getMessage());
+      retryAfterMs = _acquireLocally(keys, limit);
+    }
+
+    if (retryAfterMs > 0) {
+      meterRegistry.counter("ratelimit.rejected", "route", route).increment();
+      throw new TooManyRequestsException("Too many requests, please retry later",
+          Math.max(1, TimeUnit.MILLISECONDS.toSeconds(retryAfterMs + 999)));
+    }
+  }
+
+  /// returns 0 when allowed, otherwise the milliseconds until a token is available
+  private long _acquireInRedis(List<String> keys, Limit limit) {
+    List<?> result = stringRedisTemplate.execute(tokenBucketScript, keys,
+        String.valueOf(limit.capacity()),
+        String.valueOf(limit.tokensPerMillisecond()),
+        String.valueOf(limit.idleTtlMs()));
+    if (result == null || result.size() < 2) {
+      return 0;
+    }
+    return ((Number) result.get(0)).longValue() == 1 ? 0 : ((Number) result.get(1)).longValue();
+  }
+
+  private long _acquireLocally(List<String> keys, Limit limit) {
+    List<LocalBucket> buckets = new ArrayList<>();
+    long wait = 0;
+    for (String key : keys) {
+      LocalBucket bucket = localBuckets.get(key, k -> new LocalBucket(limit));
+      buckets.add(bucket);
+      wait = Math.max(wait, bucket.waitMs());
+    }
+    if (wait > 0) {
+      return wait;
+    }
+    for (LocalBucket bucket : buckets) {
+      bucket.take();
+    }
+    return 0;
+  }
+
+  private record Limit(long capacity, long refillPerMinute) {
+    double tokensPerMillisecond() {
+      return refillPerMinute / 60_000d;
+    }
+
+    /// an idle bucket is full again after this long, so it can be dropped
+    long idleTtlMs() {
+      return (long) Math.ceil(capacity / tokensPerMillisecond());
+    }
+  }
+
+  private static class LocalBucket {
+    private final Limit limit;
+    private double tokens;
+    private long updatedAt;
+
+    LocalBucket(Limit limit) {
+      this.limit = limit;
+      this.tokens = limit.capacity();
+      this.updatedAt = System.currentTimeMillis();
+    }
+
+    synchronized long waitMs() {
+      _refill();
+      return tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / limit.tokensPerMillisecond());
+    }
+
+    synchronized void take() {
+      _refill();
+      tokens = Math.max(0, tokens - 1);
+    }
+
+    private void _refill() {
+      long now = System.currentTimeMillis();
+      tokens = Math.min(limit.capacity(), tokens + (now - updatedAt) * limit.tokensPerMillisecond());
+      updatedAt = now;
+    }
+  }
+}
@@ -1,82 +1,219 @@
 package com.johnson.blog.service;
 
 import java.time.Instant;
+import java.time.OffsetDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.johnson.database.model.SessionOutboxModel;
+import com.johnson.database.repository.SessionOutboxRepository;
 import com.johnson.database.repository.UserSessionRepository;
 
+import jakarta.transaction.Transactional;
+
 @Service
 public class RedisSessionService {
+  private static final Logger logger = LoggerFactory.getLogger(RedisSessionService.class);
+
   private final RedisTemplate<String, Object> redisTemplate;
   private final ObjectMapper objectMapper;
   private final UserSessionRepository userSessionRepository;
+  private final SessionOutboxRepository sessionOutboxRepository;
+  private final SessionOutboxRelay sessionOutboxRelay;
+
+  @Value("${application.security.jwt.refresh-token.expiration}")
+  private long refreshExpirationSeconds; // in seconds
 
   public RedisSessionService(RedisTemplate<String, Object> redisTemplate, ObjectMapper objectMapper,
-      UserSessionRepository userSessionRepository) {
+      UserSessionRepository userSessionRepository, SessionOutboxRepository sessionOutboxRepository,
+      SessionOutboxRelay sessionOutboxRelay) {
     this.redisTemplate = redisTemplate;
     this.objectMapper = objectMapper;
     this.userSessionRepository = userSessionRepository;
+    this.sessionOutboxRepository = sessionOutboxRepository;
+    this.sessionOutboxRelay = sessionOutboxRelay;
   }
 
-  private String _getSessionKey(String userId, String deviceId) {
+  static String sessionKey(String userId, String deviceId) {
     return "session:" + userId + ":" + deviceId;
   }
 
+  /// per-user index of deviceIds, so a user's sessions can be enumerated
+  /// without scanning the keyspace
+  static String sessionIndexKey(String userId) {
+    return "sessions:" + userId;
+  }
+
+  /// Session writes are recorded in the outbox within the caller's transaction
+  /// and reach Redis through the SessionOutboxRelay once it commits.
+  @Transactional
   public void saveSession(String userId, String deviceId, String ipAddress, String location, String jti) {
-    Map<String, Object> sessionData = Map.of(
-        "ipAddress", ipAddress,
-        "location", location,
-        "isLoggedOut", false,
-        "jti", jti,
-        "createdAt", Instant.now().toString());
-
-    redisTemplate.opsForHash().putAll(_getSessionKey(userId, deviceId), sessionData);
+    Map<String, Object> payload = new HashMap<>();
+    payload.put("ipAddress", ipAddress);
+    payload.put("jti", jti);
+    payload.put("createdAt", Instant.now().toEpochMilli());
+    payload.put("expiresAt", _expiresAt());
+    // null until the session enrichment fills it in
+    payload.put("location", location);
+    _enqueue(SessionOutboxRelay.Operation.SAVE, userId, deviceId, payload);
   }
 
   public boolean isLoggedOut(String userId, String deviceId) {
-    Object status = redisTemplate.opsForHash().get(_getSessionKey(userId, deviceId), deviceId);
+    Object status = redisTemplate.opsForHash().get(sessionKey(userId, deviceId), "isLoggedOut");
     return Boolean.TRUE.equals(status);
   }
 
-  public void logoutAllDevices(String userId) {
-    Set<String> keys = redisTemplate.keys("session:" + userId + ":*");
-    if (keys != null) {
-      for (String key : keys) {
-        redisTemplate.delete(key);
-        // redisTemplate.opsForHash().delete(key);
-        userSessionRepository.logoutAllSessionsByUserId(userId);
-      }
+  /// Answers the revocation check from the session hash in a single HMGET.
+  /// Returns empty when the session is not in Redis (or Redis is unreachable),
+  /// in which case the caller falls back to Postgres.
+  public Optional<Boolean> findRevocationStatus(String userId, String deviceId, String jti) {
+    List<Object> fields;
+    try {
+      fields = redisTemplate.opsForHash().multiGet(sessionKey(userId, deviceId),
+          List.of("jti", "isLoggedOut"));
+    } catch (DataAccessException e) {
+      logger.warn("Redis unavailable for revocation check, falling back to database: {}", e.getMessage());
+      return Optional.empty();
     }
+
+    if (fields == null || fields.size() < 2 || fields.get(0) == null) {
+      return Optional.empty();
+    }
+    if (Boolean.TRUE.equals(fields.get(1))) {
+      return Optional.of(true);
+    }
+    // a different jti may just mean the rotation has not been relayed yet
+    return fields.get(0).equals(jti) ? Optional.of(false) : Optional.empty();
+  }
+
+  /// sets the location of an existing session; a session that was logged out
+  /// meanwhile is not recreated
+  @Transactional
+  public void updateLocation(String userId, String deviceId, String location) {
+    userSessionRepository.updateLocation(location, userId, deviceId);
+    _enqueue(SessionOutboxRelay.Operation.UPDATE_LOCATION, userId, deviceId, Collections.singletonMap("location", location));
+  }
+
+  /// keeps the session hash in step with the rotated jti after a token refresh
+  @Transactional
+  public void updateJti(String userId, String deviceId, String jti) {
+    // rotation issues a new refresh token, so the hash lives on with it
+    _enqueue(SessionOutboxRelay.Operation.UPDATE_JTI, userId, deviceId, Map.of("jti", jti, "expiresAt", _expiresAt()));
+  }
+
+  @Transactional
+  public void logoutAllDevices(String userId) {
+    userSessionRepository.logoutAllSessionsByUserId(userId);
+    _enqueue(SessionOutboxRelay.Operation.DELETE_ALL, userId, null, null);
   }
 
+  @Transactional
   public void logoutADevice(String userId, String deviceId) {
-    String key = _getSessionKey(userId, deviceId);
-    // System.out.println(">>>>>>>>>>>>>>>>>>>>>>>> redis session key: " + key);
     userSessionRepository.logoutASession(userId, deviceId);
-    redisTemplate.delete(key);
+    evictSession(userId, deviceId);
     userSessionRepository.flush();
   }
 
+  /// drops the session hash and its index entry; for sessions already revoked
+  /// in the database
+  @Transactional
+  public void evictSession(String userId, String deviceId) {
+    _enqueue(SessionOutboxRelay.Operation.DELETE, userId, deviceId, null);
+  }
+
+  /// Enumerates the sessions of one user through the per-user index and loads
+  /// every session hash in a single pipelined round trip.
   public List<Map<String, Object>> getAllSessions(String userId) {
-    Set<String> keys = redisTemplate.keys("session:" + userId + ":*");
+    String indexKey = sessionIndexKey(userId);
+    Set<Object> members = redisTemplate.opsForSet().members(indexKey);
     List<Map<String, Object>> sessions = new ArrayList<>();
+    if (members == null || members.isEmpty()) {
+      return sessions;
+    }
+
+    List<String> deviceIds = members.stream().map(Object::toString).toList();
+    List<Object> results = redisTemplate.executePipelined(new SessionCallback<Object>() {
+      @Override
+      public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+        HashOperations<K, Object, Object> hashOperations = operations.opsForHash();
+        for (String deviceId : deviceIds) {
+          @SuppressWarnings("unchecked")
+          K key = (K) sessionKey(userId, deviceId);
+          hashOperations.entries(key);
+        }
+        return null;
+      }
+    });
 
-    if (keys != null) {
-      for (String key : keys) {
-        Map<Object, Object> data = redisTemplate.opsForHash().entries(key);
-        sessions
-            .add(data.entrySet().stream().collect(Collectors.toMap(e -> e.getKey().toString(), Map.Entry::getValue)));
+    List<Object> staleDeviceIds = new ArrayList<>();
+    for (int i = 0; i < deviceIds.size(); i++) {
+      Object result = i < results.size() ? results.get(i) : null;
+      if (!(result instanceof Map<?, ?> data) || data.isEmpty()) {
+        // hash is gone but the index still lists it
+        staleDeviceIds.add(deviceIds.get(i));
+        continue;
       }
+      Map<String, Object> session = data.entrySet().stream()
+          .collect(Collectors.toMap(e -> e.getKey().toString(), Map.Entry::getValue));
+      session.put("deviceId", deviceIds.get(i));
+      sessions.add(session);
+    }
+    if (!staleDeviceIds.isEmpty()) {
+      redisTemplate.opsForSet().remove(indexKey, staleDeviceIds.toArray());
     }
 
     return sessions;
   }
+
+  /// the session hash expires with the refresh token issued alongside it;
+  /// absolute, so a late relay does not extend it
+  private long _expiresAt() {
+    return Instant.now().plusSeconds(refreshExpirationSeconds).toEpochMilli();
+  }
+
+  private void _enqueue(SessionOutboxRelay.Operation operation, String userId, String deviceId,
+      Map<String, Object> payload) {
+    SessionOutboxModel event = new SessionOutboxModel();
+    event.setOperation(operation.name());
+    event.setUserId(userId);
+    event.setDeviceId(deviceId);
+    event.setNextAttemptAt(OffsetDateTime.now());
+    try {
+      event.setPayload(payload == null ? null : objectMapper.writeValueAsString(payload));
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Could not serialize session outbox payload", e);
+    }
+    sessionOutboxRepository.save(event);
+
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          sessionOutboxRelay.relayAsync();
+        }
+      });
+    } else {
+      sessionOutboxRelay.relayAsync();
+    }
+  }
 }
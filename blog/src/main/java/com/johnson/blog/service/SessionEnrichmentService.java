@@ -0,0 +1,110 @@
+package com.johnson.blog.service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/*
+ * Takes the location lookup off the login/refresh critical path.
+ *
+ * With async enrichment on, tokens are minted without a location claim and
+ * the session is saved without a location; once the transaction commits the
+ * lookup runs on a bounded executor and fills in the blog_user_sessions row
+ * and the Redis session hash.
+ * When the queue is full new enrichments are shed (the session simply keeps
+ * no location) rather than pushing the lookup back onto the request thread.
+ */
+@Service
+public class SessionEnrichmentService {
+  private static final Logger logger = LoggerFactory.getLogger(SessionEnrichmentService.class);
+
+  private final GeoLocationService geoLocationService;
+  private final RedisSessionService redisSessionService;
+  private final boolean asyncEnrichment;
+  private final ThreadPoolExecutor executor;
+  private final Counter rejectedCounter;
+
+  public SessionEnrichmentService(
+      GeoLocationService geoLocationService,
+      RedisSessionService redisSessionService,
+      MeterRegistry meterRegistry,
+      @Value("${application.geolocation.async-enrichment:false}") boolean asyncEnrichment,
+      @Value("${application.geolocation.enrichment.threads:2}") int threads,
+      @Value("${application.geolocation.enrichment.queue-capacity:1000}") int queueCapacity) {
+    this.geoLocationService = geoLocationService;
+    this.redisSessionService = redisSessionService;
+    this.asyncEnrichment = asyncEnrichment;
+    this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("session-enrichment-"),
+        new ThreadPoolExecutor.AbortPolicy());
+    this.executor.allowCoreThreadTimeOut(true);
+    this.rejectedCounter = Counter.builder("session.enrichment.rejected")
+        .description("location enrichments shed because the queue was full")
+        .register(meterRegistry);
+    meterRegistry.gauge("session.enrichment.queue.size", executor, e -> e.getQueue().size());
+  }
+
+  /// location to embed in tokens and the session right away; null when the
+  /// lookup is deferred to enrichAfterCommit
+  public String resolveLocation(String ipAddress) {
+    if (asyncEnrichment) {
+      return null;
+    }
+    return geoLocationService.geoLocationFromIP(ipAddress);
+  }
+
+  /// schedules the location lookup for a session saved without one; runs
+  /// after the surrounding transaction commits so the session row exists
+  public void enrichAfterCommit(String userId, String deviceId, String ipAddress, String location) {
+    if (location != null) {
+      return;
+    }
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      _submit(userId, deviceId, ipAddress);
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        _submit(userId, deviceId, ipAddress);
+      }
+    });
+  }
+
+  private void _submit(String userId, String deviceId, String ipAddress) {
+    try {
+      executor.execute(() -> _enrich(userId, deviceId, ipAddress));
+    } catch (RejectedExecutionException e) {
+      rejectedCounter.increment();
+      logger.debug("Session enrichment queue full, skipping location for device {}", deviceId);
+    }
+  }
+
+  private void _enrich(String userId, String deviceId, String ipAddress) {
+    try {
+      String location = geoLocationService.geoLocationFromIP(ipAddress);
+      // updates the row and queues the Redis change in one transaction
+      redisSessionService.updateLocation(userId, deviceId, location);
+    } catch (RuntimeException e) {
+      logger.warn("Could not enrich session of device {}: {}", deviceId, e.getMessage());
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdown();
+  }
+}
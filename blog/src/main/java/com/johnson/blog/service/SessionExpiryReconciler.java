@@ -0,0 +1,112 @@
+package com.johnson.blog.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.johnson.database.repository.UserSessionRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/*
+ * Marks blog_user_sessions rows logged out once their refresh token can no
+ * longer be used, mirroring the TTL of the Redis session hash.
+ *
+ * Expired hashes reported by keyspace notifications (optional, needs
+ * notify-keyspace-events Ex on the server) are queued and flushed in
+ * batches. The periodic sweep is the source of truth either way: it catches
+ * missed notifications, which Redis delivers at most once.
+ */
+@Component
+public class SessionExpiryReconciler implements MessageListener {
+  private static final Logger logger = LoggerFactory.getLogger(SessionExpiryReconciler.class);
+  private static final String SESSION_KEY_PREFIX = "session:";
+  // tolerates clock skew between the Redis expiry and the database clock
+  private static final long NOTIFICATION_SLACK_SECONDS = 60;
+
+  private final UserSessionRepository userSessionRepository;
+  private final long refreshExpirationSeconds;
+  private final int batchSize;
+  private final Queue<String> expiredDeviceIds = new ConcurrentLinkedQueue<>();
+  private final Counter expiredCounter;
+
+  public SessionExpiryReconciler(
+      UserSessionRepository userSessionRepository,
+      MeterRegistry meterRegistry,
+      @Value("${application.security.jwt.refresh-token.expiration}") long refreshExpirationSeconds,
+      @Value("${application.session.expiry.batch-size:500}") int batchSize) {
+    this.userSessionRepository = userSessionRepository;
+    this.refreshExpirationSeconds = refreshExpirationSeconds;
+    this.batchSize = batchSize;
+    this.expiredCounter = meterRegistry.counter("session.expiry.reconciled");
+  }
+
+  /// expired key event; the message body is the key, session:{userId}:{deviceId}
+  @Override
+  public void onMessage(Message message, byte[] pattern) {
+    String key = new String(message.getBody(), StandardCharsets.UTF_8);
+    if (!key.startsWith(SESSION_KEY_PREFIX)) {
+      return;
+    }
+    int separator = key.indexOf(':', SESSION_KEY_PREFIX.length());
+    if (separator > 0) {
+      expiredDeviceIds.add(key.substring(separator + 1));
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${application.session.expiry.flush-interval-ms:5000}")
+  public void flushNotifications() {
+    try {
+      List<String> deviceIds = new ArrayList<>(batchSize);
+      String deviceId;
+      while ((deviceId = expiredDeviceIds.poll()) != null) {
+        deviceIds.add(deviceId);
+        if (deviceIds.size() == batchSize) {
+          _logoutDevices(deviceIds);
+          deviceIds.clear();
+        }
+      }
+      if (!deviceIds.isEmpty()) {
+        _logoutDevices(deviceIds);
+      }
+    } catch (RuntimeException e) {
+      logger.warn("Could not reconcile expired sessions, the sweep will pick them up: {}", e.getMessage());
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${application.session.expiry.sweep-interval-ms:300000}")
+  public void sweep() {
+    try {
+      int updated;
+      do {
+        // each batch is its own short transaction
+        updated = userSessionRepository.logoutExpiredSessions(_cutoff(0), batchSize);
+        expiredCounter.increment(updated);
+      } while (updated == batchSize);
+    } catch (RuntimeException e) {
+      logger.warn("Expired session sweep failed: {}", e.getMessage());
+    }
+  }
+
+  private void _logoutDevices(List<String> deviceIds) {
+    // a device that logged in again since the expiry has a fresh updated_at
+    expiredCounter.increment(userSessionRepository.logoutExpiredDevices(deviceIds, _cutoff(NOTIFICATION_SLACK_SECONDS)));
+  }
+
+  /// sessions not rotated since before this have an expired refresh token
+  private OffsetDateTime _cutoff(long slackSeconds) {
+    return OffsetDateTime.now().minusSeconds(refreshExpirationSeconds - slackSeconds);
+  }
+}
@@ -0,0 +1,324 @@
+package com.johnson.blog.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.johnson.database.model.SessionOutboxModel;
+import com.johnson.database.repository.SessionOutboxRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/*
+ * Applies the session outbox (blog_session_outbox) to Redis.
+ *
+ * Request paths only write outbox rows, in the same transaction as the
+ * blog_user_sessions change, so Redis can never hold a session the database
+ * rolled back or miss a logout the database committed.
+ *
+ * A relay pass claims due events in id (= creation) order under a row lock
+ * and leases them (next_attempt_at moves lease-ms ahead) in a short
+ * transaction, then applies them to Redis with no transaction or lock held,
+ * then deletes the applied ones. A slow Redis therefore holds no connection
+ * and blocks no other relay. Every operation writes absolute state, so
+ * re-applying an event after a crash (the lease runs out) is harmless.
+ *
+ * A failing event is retried with backoff; later events of the same user
+ * wait for it so they are never applied out of order. An event is never
+ * simply dropped: Redis is the revocation cache, and a lost DELETE would
+ * leave a logged-out session looking live. After max-attempts the session
+ * key is deleted instead (revocation then falls back to the database); until
+ * that succeeds too, the event keeps being retried.
+ */
+@Component
+public class SessionOutboxRelay {
+  private static final Logger logger = LoggerFactory.getLogger(SessionOutboxRelay.class);
+  private static final TypeReference<Map<String, Object>> PAYLOAD_TYPE = new TypeReference<>() {
+  };
+
+  public enum Operation {
+    SAVE, UPDATE_JTI, UPDATE_LOCATION, DELETE, DELETE_ALL
+  }
+
+  private final SessionOutboxRepository sessionOutboxRepository;
+  private final RedisTemplate<String, Object> redisTemplate;
+  private final ObjectMapper objectMapper;
+  private final TransactionTemplate transactionTemplate;
+  private final DefaultRedisScript<Long> putIfPresentScript;
+  private final int batchSize;
+  private final int maxAttempts;
+  private final long leaseMs;
+  /// one pending wake-up is enough, further ones are coalesced
+  private final ThreadPoolExecutor wakeUpExecutor;
+  private final Counter appliedCounter;
+  private final Counter retriedCounter;
+  private final Counter evictedCounter;
+  /// events due at the last relay pass: a cheap backlog estimate
+  private final AtomicLong pending = new AtomicLong();
+
+  public SessionOutboxRelay(
+      SessionOutboxRepository sessionOutboxRepository,
+      RedisTemplate<String, Object> redisTemplate,
+      ObjectMapper objectMapper,
+      PlatformTransactionManager transactionManager,
+      MeterRegistry meterRegistry,
+      @Value("${application.session.outbox.batch-size:200}") int batchSize,
+      @Value("${application.session.outbox.max-attempts:10}") int maxAttempts,
+      @Value("${application.session.outbox.lease-ms:60000}") long leaseMs) {
+    this.sessionOutboxRepository = sessionOutboxRepository;
+    this.redisTemplate = redisTemplate;
+    this.objectMapper = objectMapper;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.putIfPresentScript = new DefaultRedisScript<>();
+    this.putIfPresentScript.setScriptSource(
+        new ResourceScriptSource(new ClassPathResource("scripts/session_put_if_present.lua")));
+    this.putIfPresentScript.setResultType(Long.class);
+    this.batchSize = batchSize;
+    this.maxAttempts = maxAttempts;
+    this.leaseMs = leaseMs;
+    this.wakeUpExecutor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(1),
+        new CustomizableThreadFactory("session-outbox-"), new ThreadPoolExecutor.DiscardPolicy());
+    this.wakeUpExecutor.allowCoreThreadTimeOut(true);
+
+    this.appliedCounter = meterRegistry.counter("session.outbox.events", "result", "applied");
+    this.retriedCounter = meterRegistry.counter("session.outbox.events", "result", "retried");
+    // replaced by a session key delete after max-attempts
+    this.evictedCounter = meterRegistry.counter("session.outbox.events", "result", "evicted");
+    meterRegistry.gauge("session.outbox.pending", pending);
+  }
+
+  /// called after a transaction that wrote outbox events commits, so Redis
+  /// (the revocation cache) trails the database by milliseconds rather than a
+  /// full relay interval
+  public void relayAsync() {
+    wakeUpExecutor.execute(this::relay);
+  }
+
+  /// drains every due event; also the safety net for missed wake-ups
+  @Scheduled(fixedDelayString = "${application.session.outbox.relay-interval-ms:1000}")
+  public void relay() {
+    try {
+      long due = 0;
+      int claimed;
+      do {
+        claimed = _relayBatch();
+        due += claimed;
+      } while (claimed >= batchSize);
+      pending.set(due);
+    } catch (RuntimeException e) {
+      logger.warn("Session outbox relay failed, will retry: {}", e.getMessage());
+    }
+  }
+
+  private int _relayBatch() {
+    List<SessionOutboxModel> batch = _claim();
+    List<String> finished = new ArrayList<>();
+    List<String> unattempted = new ArrayList<>();
+    Set<String> blockedUsers = new HashSet<>();
+
+    for (SessionOutboxModel event : batch) {
+      if (blockedUsers.contains(event.getUserId())) {
+        unattempted.add(event.getId());
+        continue;
+      }
+      try {
+        _apply(event);
+        appliedCounter.increment();
+        finished.add(event.getId());
+      } catch (RuntimeException e) {
+        int attempts = event.getAttempts() + 1;
+        if (attempts >= maxAttempts && _evictSession(event)) {
+          evictedCounter.increment();
+          finished.add(event.getId());
+          logger.error("Session outbox event {} ({}) failed {} times, evicted the session from Redis instead: {}",
+              event.getId(), event.getOperation(), attempts, e.getMessage());
+          continue;
+        }
+        if (attempts == maxAttempts) {
+          logger.error("Session outbox event {} ({}) failed {} times and cannot be evicted, still retrying: {}",
+              event.getId(), event.getOperation(), attempts, e.getMessage());
+        }
+        blockedUsers.add(event.getUserId());
+        retriedCounter.increment();
+        // exponential backoff, capped at a minute
+        long delayMs = Math.min(60_000L, 500L << Math.min(attempts, 7));
+        sessionOutboxRepository.reschedule(event.getId(), attempts,
+            OffsetDateTime.now().plusNanos(delayMs * 1_000_000L));
+      }
+    }
+
+    if (!unattempted.isEmpty()) {
+      // still held back behind the rescheduled event of their user
+      sessionOutboxRepository.postpone(unattempted, OffsetDateTime.now());
+    }
+    if (!finished.isEmpty()) {
+      sessionOutboxRepository.deleteAllByIdInBatch(finished);
+    }
+    return batch.size();
+  }
+
+  /// locks the due events only for as long as it takes to lease them
+  private List<SessionOutboxModel> _claim() {
+    return transactionTemplate.execute(status -> {
+      List<SessionOutboxModel> batch = sessionOutboxRepository.findDueForRelay(OffsetDateTime.now(),
+          PageRequest.of(0, batchSize));
+      if (!batch.isEmpty()) {
+        sessionOutboxRepository.postpone(batch.stream().map(SessionOutboxModel::getId).toList(),
+            OffsetDateTime.now().plusNanos(leaseMs * 1_000_000L));
+      }
+      return batch;
+    });
+  }
+
+  /// last resort for an event that keeps failing: without its session hash,
+  /// the revocation check reads the database. False when Redis refuses this
+  /// too, or for DELETE_ALL, whose only faithful form is the operation itself.
+  private boolean _evictSession(SessionOutboxModel event) {
+    if (event.getDeviceId() == null) {
+      return false;
+    }
+    try {
+      redisTemplate.delete(RedisSessionService.sessionKey(event.getUserId(), event.getDeviceId()));
+      return true;
+    } catch (DataAccessException e) {
+      return false;
+    }
+  }
+
+  private void _apply(SessionOutboxModel event) {
+    Map<String, Object> payload = _readPayload(event.getPayload());
+    String userId = event.getUserId();
+    String deviceId = event.getDeviceId();
+    String key = RedisSessionService.sessionKey(userId, deviceId);
+    String indexKey = RedisSessionService.sessionIndexKey(userId);
+
+    switch (Operation.valueOf(event.getOperation())) {
+      case SAVE -> {
+        Map<String, Object> sessionData = new HashMap<>();
+        sessionData.put("ipAddress", payload.get("ipAddress"));
+        sessionData.put("isLoggedOut", false);
+        sessionData.put("jti", payload.get("jti"));
+        sessionData.put("createdAt", Instant.ofEpochMilli(((Number) payload.get("createdAt")).longValue()));
+        if (payload.get("location") != null) {
+          sessionData.put("location", payload.get("location"));
+        }
+        Instant expiresAt = _expiresAt(payload);
+        _executeInTransaction(operations -> {
+          // a re-login replaces the whole hash, including a stale location
+          operations.delete(key);
+          operations.opsForHash().putAll(key, sessionData);
+          operations.opsForSet().add(indexKey, deviceId);
+          // the latest write carries the furthest expiry, so the index outlives its sessions
+          if (expiresAt != null) {
+            operations.expireAt(key, expiresAt);
+            operations.expireAt(indexKey, expiresAt);
+          }
+        });
+      }
+      case UPDATE_JTI -> _putIfPresent(key, indexKey, "jti", payload.get("jti"), _expiresAt(payload));
+      case UPDATE_LOCATION -> _putIfPresent(key, indexKey, "location", payload.get("location"), null);
+      case DELETE -> _executeInTransaction(operations -> {
+        operations.delete(key);
+        operations.opsForSet().remove(indexKey, deviceId);
+      });
+      case DELETE_ALL -> {
+        Set<Object> deviceIds = redisTemplate.opsForSet().members(indexKey);
+        List<String> keys = new ArrayList<>();
+        if (deviceIds != null) {
+          for (Object member : deviceIds) {
+            keys.add(RedisSessionService.sessionKey(userId, member.toString()));
+          }
+        }
+        keys.add(indexKey);
+        redisTemplate.delete(keys);
+      }
+    }
+  }
+
+  /// a session deleted (or not yet saved) in Redis is not recreated by a
+  /// partial update: the existence check, the write and the optional new
+  /// expiry run as one script, so the key cannot expire in between
+  @SuppressWarnings("unchecked")
+  private void _putIfPresent(String key, String indexKey, String field, Object value, Instant expiresAt) {
+    if (value == null) {
+      return;
+    }
+    // pre-serialized: the field and value as HSET would write them
+    byte[] fieldBytes = ((RedisSerializer<String>) redisTemplate.getHashKeySerializer()).serialize(field);
+    byte[] valueBytes = ((RedisSerializer<Object>) redisTemplate.getHashValueSerializer()).serialize(value);
+    byte[] expiresAtBytes = (expiresAt == null ? "" : String.valueOf(expiresAt.toEpochMilli()))
+        .getBytes(StandardCharsets.UTF_8);
+    redisTemplate.execute(putIfPresentScript, RedisSerializer.byteArray(),
+        new GenericToStringSerializer<>(Long.class), List.of(key, indexKey), fieldBytes, valueBytes, expiresAtBytes);
+  }
+
+  /// null for events queued before session hashes had a ttl
+  private Instant _expiresAt(Map<String, Object> payload) {
+    Object expiresAt = payload.get("expiresAt");
+    return expiresAt instanceof Number epochMilli ? Instant.ofEpochMilli(epochMilli.longValue()) : null;
+  }
+
+  private Map<String, Object> _readPayload(String payload) {
+    if (payload == null) {
+      return Map.of();
+    }
+    try {
+      return objectMapper.readValue(payload, PAYLOAD_TYPE);
+    } catch (Exception e) {
+      throw new IllegalStateException("Unreadable session outbox payload", e);
+    }
+  }
+
+  /// runs the given commands atomically in a MULTI/EXEC block
+  private void _executeInTransaction(Consumer<RedisOperations<String, Object>> commands) {
+    redisTemplate.execute(new SessionCallback<List<Object>>() {
+      @Override
+      @SuppressWarnings("unchecked")
+      public <K, V> List<Object> execute(RedisOperations<K, V> operations) throws DataAccessException {
+        RedisOperations<String, Object> redisOperations = (RedisOperations<String, Object>) operations;
+        redisOperations.multi();
+        commands.accept(redisOperations);
+        return redisOperations.exec();
+      }
+    });
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    wakeUpExecutor.shutdown();
+  }
+}
@@ -0,0 +1,189 @@
+package com.johnson.blog.service;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.johnson.database.repository.UserSessionRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+/*
+ * Removes dead rows from blog_user_sessions so the auth path only ever
+ * searches live sessions.
+ *
+ * A row is purgeable once it has been logged out for the retention period or
+ * its refresh token has expired. The job walks the primary key (UUIDv7, so
+ * roughly creation order) in chunks, and each chunk is deleted, or moved to
+ * blog_user_sessions_archive, as one primary key range in its own short
+ * transaction. At most `concurrency` ranges run at once, and the walk pauses
+ * while the connection pool has requests waiting, so the job never competes
+ * with logins for connections.
+ */
+@Component
+public class SessionPurgeJob {
+  private static final Logger logger = LoggerFactory.getLogger(SessionPurgeJob.class);
+  // sorts before every UUID id
+  private static final String START_ID = "00000000-0000-0000-0000-000000000000";
+
+  private final UserSessionRepository userSessionRepository;
+  private final TransactionTemplate transactionTemplate;
+  private final HikariPoolMXBean poolMXBean;
+  private final boolean enabled;
+  private final boolean archive;
+  private final int batchSize;
+  private final int concurrency;
+  private final long retentionMinutes;
+  private final long yieldMs;
+  private final ExecutorService executor;
+  private final AtomicBoolean running = new AtomicBoolean();
+
+  @Value("${application.security.jwt.refresh-token.expiration}")
+  private long refreshExpirationSeconds; // in seconds
+
+  private final Counter purgedCounter;
+  private final Counter batchCounter;
+  private final Counter yieldCounter;
+  private final Timer batchTimer;
+
+  public SessionPurgeJob(
+      UserSessionRepository userSessionRepository,
+      PlatformTransactionManager transactionManager,
+      DataSource dataSource,
+      MeterRegistry meterRegistry,
+      @Value("${application.session.purge.enabled:true}") boolean enabled,
+      @Value("${application.session.purge.archive:false}") boolean archive,
+      @Value("${application.session.purge.batch-size:1000}") int batchSize,
+      @Value("${application.session.purge.concurrency:2}") int concurrency,
+      @Value("${application.session.purge.retention-minutes:60}") long retentionMinutes,
+      @Value("${application.session.purge.yield-ms:500}") long yieldMs) {
+    this.userSessionRepository = userSessionRepository;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.poolMXBean = dataSource instanceof HikariDataSource hikari ? hikari.getHikariPoolMXBean() : null;
+    this.enabled = enabled;
+    this.archive = archive;
+    this.batchSize = batchSize;
+    this.concurrency = concurrency;
+    this.retentionMinutes = retentionMinutes;
+    this.yieldMs = yieldMs;
+    this.executor = Executors.newFixedThreadPool(concurrency, new CustomizableThreadFactory("session-purge-"));
+
+    this.purgedCounter = meterRegistry.counter("session.purge.rows", "action", archive ? "archived" : "deleted");
+    this.batchCounter = meterRegistry.counter("session.purge.batches");
+    this.yieldCounter = meterRegistry.counter("session.purge.yields");
+    this.batchTimer = Timer.builder("session.purge.batch.duration").register(meterRegistry);
+  }
+
+  @Scheduled(cron = "${application.session.purge.cron:0 */15 * * * *}")
+  public void purge() {
+    if (!enabled || !running.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      _purge();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (RuntimeException e) {
+      logger.warn("Session purge stopped, resuming on the next run: {}", e.getMessage());
+    } finally {
+      running.set(false);
+    }
+  }
+
+  private void _purge() throws InterruptedException {
+    OffsetDateTime now = OffsetDateTime.now();
+    OffsetDateTime loggedOutCutoff = now.minusMinutes(retentionMinutes);
+    OffsetDateTime expiredCutoff = now.minusSeconds(refreshExpirationSeconds);
+
+    Semaphore permits = new Semaphore(concurrency);
+    List<Future<?>> pending = new ArrayList<>();
+    String afterId = START_ID;
+    AtomicLong purged = new AtomicLong();
+
+    while (true) {
+      _yieldWhileBusy();
+      List<String> ids = userSessionRepository.findPurgeableIds(afterId, loggedOutCutoff, expiredCutoff,
+          batchSize);
+      if (ids.isEmpty()) {
+        break;
+      }
+      String fromId = ids.get(0);
+      String toId = ids.get(ids.size() - 1);
+      afterId = toId;
+
+      permits.acquire();
+      pending.add(executor.submit(() -> {
+        try {
+          purged.addAndGet(_purgeRange(fromId, toId, loggedOutCutoff, expiredCutoff));
+        } finally {
+          permits.release();
+        }
+      }));
+      if (ids.size() < batchSize) {
+        break;
+      }
+    }
+
+    for (Future<?> future : pending) {
+      try {
+        future.get();
+      } catch (ExecutionException e) {
+        logger.warn("Session purge batch failed: {}", e.getCause().getMessage());
+      }
+    }
+    logger.info("Session purge finished, {} rows {}", purged.get(), archive ? "archived" : "deleted");
+  }
+
+  /// one primary key range, committed on its own
+  private int _purgeRange(String fromId, String toId, OffsetDateTime loggedOutCutoff,
+      OffsetDateTime expiredCutoff) {
+    Integer rows = batchTimer.record(() -> transactionTemplate.execute(status -> archive
+        ? userSessionRepository.archivePurgeableRange(fromId, toId, loggedOutCutoff, expiredCutoff)
+        : userSessionRepository.deletePurgeableRange(fromId, toId, loggedOutCutoff, expiredCutoff)));
+    batchCounter.increment();
+    int purgedRows = rows == null ? 0 : rows;
+    purgedCounter.increment(purgedRows);
+    return purgedRows;
+  }
+
+  /// backs off while requests are queueing for a connection
+  private void _yieldWhileBusy() throws InterruptedException {
+    if (poolMXBean == null) {
+      return;
+    }
+    while (poolMXBean.getThreadsAwaitingConnection() > 0
+        || poolMXBean.getActiveConnections() >= poolMXBean.getTotalConnections() - 1) {
+      yieldCounter.increment();
+      TimeUnit.MILLISECONDS.sleep(yieldMs);
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+}
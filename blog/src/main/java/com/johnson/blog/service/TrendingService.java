@@ -0,0 +1,469 @@
+package com.johnson.blog.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.DoubleAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.zset.Aggregate;
+import org.springframework.data.redis.connection.zset.Weights;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.johnson.database.projection.TrendingSeedRow;
+import com.johnson.database.repository.PostLikeRepository;
+import com.johnson.database.repository.PostRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/*
+ * Trending posts, overall and per genre, ranked by exponentially decayed
+ * engagement (views and likes, likes weighing more).
+ *
+ * Scores use forward decay: an event at time t adds weight * 2^((t - L) / halfLife)
+ * to its post, where L is the start of the current epoch. Older events are
+ * never rescored, yet ratios between posts are exactly those of decaying
+ * every score continuously. When an epoch ends its sorted sets are carried
+ * into the next epoch's keys scaled by 2^(-epoch / halfLife), once, by the
+ * first node to get there, so scores stay small.
+ *
+ * The ranking lives in Redis sorted sets shared by every node, each trimmed
+ * to max-size entries (a post pushed out loses its score, like a bounded
+ * heap). Events are summed per post in memory and added to Redis in one
+ * pipeline per flush-interval-ms. Reads come from a per-node snapshot of the
+ * top snapshot-size entries, refreshed every refresh-seconds, so requests
+ * never run a query or a GROUP BY. When Redis has no ranking at startup it is
+ * seeded from recent likes and views in the database.
+ */
+@Service
+public class TrendingService {
+  private static final Logger logger = LoggerFactory.getLogger(TrendingService.class);
+  private static final String ALL = "";
+  private static final String ROLLING = "rolling";
+  private static final String ROLLED = "done";
+  /// how long a node may take to roll an epoch before another one takes over
+  private static final Duration ROLL_LOCK_TTL = Duration.ofMinutes(1);
+
+  private final StringRedisTemplate stringRedisTemplate;
+  private final PostRepository postRepository;
+  private final PostLikeRepository postLikeRepository;
+  private final double decayPerMs;
+  private final long epochMs;
+  private final double viewWeight;
+  private final double likeWeight;
+  private final int maxSize;
+  private final int snapshotSize;
+  private final boolean seedOnStartup;
+  private final Duration keyTtl;
+
+  private final AtomicReference<Map<String, Pending>> pending = new AtomicReference<>(new ConcurrentHashMap<>());
+  private volatile Map<String, Pending> retired = Map.of();
+  private volatile long rolledEpoch = -1;
+
+  /// genre (ALL for overall) -> top post ids, best first
+  private final Cache<String, List<String>> snapshots;
+  /// last non-empty snapshot read from Redis, served while Redis is
+  /// unavailable; bounded, as genres come from the ?genre= of requests
+  private final Cache<String, List<String>> lastGood;
+  private final Counter failedFlushes;
+
+  public TrendingService(
+      StringRedisTemplate stringRedisTemplate,
+      PostRepository postRepository,
+      PostLikeRepository postLikeRepository,
+      MeterRegistry meterRegistry,
+      @Value("${application.trending.half-life-minutes:360}") long halfLifeMinutes,
+      @Value("${application.trending.epoch-hours:24}") long epochHours,
+      @Value("${application.trending.view-weight:1}") double viewWeight,
+      @Value("${application.trending.like-weight:5}") double likeWeight,
+      @Value("${application.trending.max-size:1000}") int maxSize,
+      @Value("${application.trending.snapshot-size:100}") int snapshotSize,
+      @Value("${application.trending.refresh-seconds:5}") long refreshSeconds,
+      @Value("${application.trending.seed-on-startup:true}") boolean seedOnStartup) {
+    this.stringRedisTemplate = stringRedisTemplate;
+    this.postRepository = postRepository;
+    this.postLikeRepository = postLikeRepository;
+    this.decayPerMs = Math.log(2) / TimeUnit.MINUTES.toMillis(halfLifeMinutes);
+    this.epochMs = TimeUnit.HOURS.toMillis(epochHours);
+    this.viewWeight = viewWeight;
+    this.likeWeight = likeWeight;
+    this.maxSize = maxSize;
+    this.snapshotSize = snapshotSize;
+    this.seedOnStartup = seedOnStartup;
+    // the previous epoch is still read while the next one is being rolled into
+    this.keyTtl = Duration.ofMillis(epochMs * 2 + TimeUnit.HOURS.toMillis(1));
+    this.snapshots = Caffeine.newBuilder()
+        .maximumSize(1000)
+        .expireAfterWrite(refreshSeconds, TimeUnit.SECONDS)
+        .build();
+    this.lastGood = Caffeine.newBuilder()
+        .maximumSize(1000)
+        .expireAfterWrite(1, TimeUnit.HOURS)
+        .build();
+    this.failedFlushes = meterRegistry.counter("trending.flush.failures");
+    meterRegistry.gauge("trending.pending", pending, p -> p.get().size());
+  }
+
+  public void recordView(String postId, String genre) {
+    _pending(postId, genre).weight.add(viewWeight);
+  }
+
+  public void recordLike(String postId, String genre) {
+    _pending(postId, genre).weight.add(likeWeight);
+  }
+
+  /// up to size post ids, best first; genre null for all posts
+  public List<String> top(String genre, int size) {
+    String snapshotKey = genre == null ? ALL : genre;
+    List<String> ids = snapshots.get(snapshotKey, this::_readTop);
+    return ids.size() <= size ? ids : ids.subList(0, size);
+  }
+
+  public int maxResults() {
+    return snapshotSize;
+  }
+
+  /// moves an edited post's score from its previous genre's ranking to the
+  /// new one, in this and the previous epoch; the overall ranking is unchanged.
+  /// Events still pending under the old genre (one flush interval's worth)
+  /// add a small score there, which decays away.
+  public void changeGenre(String postId, String previousGenre, String genre) {
+    if (previousGenre.equals(genre)) {
+      return;
+    }
+    long epoch = System.currentTimeMillis() / epochMs;
+    try {
+      Map<Long, Double> scores = new HashMap<>();
+      for (long e = epoch - 1; e <= epoch; e++) {
+        Double score = stringRedisTemplate.opsForZSet().score(_key(e, previousGenre), postId);
+        if (score != null) {
+          scores.put(e, score);
+        }
+      }
+      stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+          RedisOperations<String, String> redisOperations = (RedisOperations<String, String>) operations;
+          for (long e = epoch - 1; e <= epoch; e++) {
+            redisOperations.opsForZSet().remove(_key(e, previousGenre), postId);
+            Double score = scores.get(e);
+            if (score != null) {
+              redisOperations.opsForZSet().incrementScore(_key(e, genre), postId, score);
+              redisOperations.expire(_key(e, genre), keyTtl);
+              redisOperations.opsForSet().add(_genresKey(e), genre);
+            }
+          }
+          return null;
+        }
+      });
+    } catch (DataAccessException e) {
+      logger.debug("Could not move post {} to genre {} in trending: {}", postId, genre, e.getMessage());
+    }
+    snapshots.invalidate(previousGenre);
+    snapshots.invalidate(genre);
+  }
+
+  /// drops posts that no longer exist (deleted) from the rankings. Their
+  /// genre is unknown once deleted, so with genre null they are removed from
+  /// every genre ranking too; the previous epoch's keys are cleaned as well,
+  /// as they are read (and rolled over) until this epoch's keys exist.
+  public void forget(String genre, Collection<String> postIds) {
+    if (postIds.isEmpty()) {
+      return;
+    }
+    long epoch = System.currentTimeMillis() / epochMs;
+    String[] members = postIds.toArray(new String[0]);
+    try {
+      List<String> keys = new ArrayList<>();
+      for (long e = epoch - 1; e <= epoch; e++) {
+        keys.add(_key(e, ALL));
+        if (genre != null) {
+          keys.add(_key(e, genre));
+          continue;
+        }
+        Set<String> genres = stringRedisTemplate.opsForSet().members(_genresKey(e));
+        if (genres != null) {
+          for (String g : genres) {
+            keys.add(_key(e, g));
+          }
+        }
+      }
+      stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+          ZSetOperations<String, String> zSet = ((RedisOperations<String, String>) operations).opsForZSet();
+          for (String key : keys) {
+            zSet.remove(key, (Object[]) members);
+          }
+          return null;
+        }
+      });
+    } catch (DataAccessException e) {
+      logger.debug("Could not remove deleted posts from trending: {}", e.getMessage());
+    }
+    if (genre == null) {
+      snapshots.invalidateAll();
+    } else {
+      snapshots.invalidate(ALL);
+      snapshots.invalidate(genre);
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${application.trending.flush-interval-ms:5000}")
+  public synchronized void flush() {
+    Map<String, Pending> previous = retired;
+    retired = pending.getAndSet(new ConcurrentHashMap<>());
+
+    Map<String, Pending> drained = new HashMap<>();
+    _drain(previous, drained);
+    _drain(retired, drained);
+    if (drained.isEmpty()) {
+      return;
+    }
+
+    long now = System.currentTimeMillis();
+    long epoch = now / epochMs;
+    // every event of this interval is scored as if it happened now
+    double boost = Math.exp(decayPerMs * (now - epoch * epochMs));
+    try {
+      _rollInto(epoch);
+      _increment(epoch, drained, boost);
+    } catch (DataAccessException e) {
+      failedFlushes.increment();
+      logger.warn("Could not flush trending scores of {} posts, retrying next flush: {}",
+          drained.size(), e.getMessage());
+      drained.forEach((postId, counts) -> _pending(postId, counts.genre).weight.add(counts.weight.sum()));
+    }
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void seed() {
+    if (!seedOnStartup) {
+      return;
+    }
+    long now = System.currentTimeMillis();
+    long epoch = now / epochMs;
+    try {
+      if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(_key(epoch, ALL)))
+          || Boolean.TRUE.equals(stringRedisTemplate.hasKey(_key(epoch - 1, ALL)))) {
+        return;
+      }
+      // one node seeds, the others find the keys on their next read
+      if (!Boolean.TRUE.equals(stringRedisTemplate.opsForValue()
+          .setIfAbsent("trending:" + epoch + ":seeding", "1", Duration.ofMinutes(5)))) {
+        return;
+      }
+
+      // beyond a few half-lives an event's weight is negligible
+      OffsetDateTime since = OffsetDateTime.ofInstant(
+          Instant.ofEpochMilli(now - (long) (8 * Math.log(2) / decayPerMs)), ZoneOffset.UTC);
+      Map<String, Pending> seeded = new HashMap<>();
+      _addSeed(seeded, postLikeRepository.findLikesSince(since), likeWeight, epoch);
+      _addSeed(seeded, postRepository.findViewsOfPostsCreatedSince(since), viewWeight, epoch);
+      if (!seeded.isEmpty()) {
+        _increment(epoch, seeded, 1);
+      }
+      logger.info("Seeded trending ranking with {} posts", seeded.size());
+    } catch (DataAccessException e) {
+      logger.warn("Could not seed trending ranking: {}", e.getMessage());
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    flush();
+    flush();
+  }
+
+  /// Approximate: all events of a post are scored at its latest one. Live
+  /// events outweigh the seed within a half-life or two.
+  private void _addSeed(Map<String, Pending> seeded, List<TrendingSeedRow> rows, double weight, long epoch) {
+    for (TrendingSeedRow row : rows) {
+      long at = row.lastAt().toInstant().toEpochMilli();
+      double score = weight * row.count() * Math.exp(decayPerMs * (at - epoch * epochMs));
+      seeded.computeIfAbsent(row.postId(), id -> new Pending(row.genre())).weight.add(score);
+    }
+  }
+
+  private void _increment(long epoch, Map<String, Pending> scores, double boost) {
+    Set<String> genres = new HashSet<>();
+    scores.values().forEach(counts -> genres.add(counts.genre));
+
+    stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+      @Override
+      @SuppressWarnings("unchecked")
+      public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+        ZSetOperations<String, String> zSet = ((RedisOperations<String, String>) operations).opsForZSet();
+        scores.forEach((postId, counts) -> {
+          double score = counts.weight.sum() * boost;
+          zSet.incrementScore(_key(epoch, ALL), postId, score);
+          zSet.incrementScore(_key(epoch, counts.genre), postId, score);
+        });
+        List<String> keys = new ArrayList<>();
+        keys.add(_key(epoch, ALL));
+        genres.forEach(genre -> keys.add(_key(epoch, genre)));
+        for (String key : keys) {
+          // keep the top maxSize: removes ranks 0 .. size - maxSize - 1 from the bottom
+          zSet.removeRange(key, 0, -(maxSize + 1));
+          ((RedisOperations<String, String>) operations).expire(key, keyTtl);
+        }
+        ((RedisOperations<String, String>) operations).opsForSet()
+            .add(_genresKey(epoch), genres.toArray(new String[0]));
+        ((RedisOperations<String, String>) operations).expire(_genresKey(epoch), keyTtl);
+        return null;
+      }
+    });
+  }
+
+  /// carries the previous epoch's rankings into this epoch's keys, rescaled to
+  /// the new epoch start; exactly once across all nodes. The flag only reads
+  /// "done" once every union has run. Until then it is a short lock, released
+  /// when Redis fails partway, and the genres already carried over are
+  /// recorded so a retry (here or on another node) skips them.
+  private void _rollInto(long epoch) {
+    if (rolledEpoch == epoch) {
+      return;
+    }
+    String flagKey = "trending:" + epoch + ":rolled";
+    if (!Boolean.TRUE.equals(stringRedisTemplate.opsForValue().setIfAbsent(flagKey, ROLLING, ROLL_LOCK_TTL))) {
+      if (ROLLED.equals(stringRedisTemplate.opsForValue().get(flagKey))) {
+        rolledEpoch = epoch;
+      }
+      // otherwise another node is rolling: look again at the next flush
+      return;
+    }
+    try {
+      _rollGenres(epoch);
+    } catch (DataAccessException e) {
+      try {
+        stringRedisTemplate.delete(flagKey);
+      } catch (DataAccessException ignored) {
+        // the lock expires on its own
+      }
+      throw e;
+    }
+    stringRedisTemplate.opsForValue().set(flagKey, ROLLED, keyTtl);
+    rolledEpoch = epoch;
+  }
+
+  private void _rollGenres(long epoch) {
+    Weights weights = Weights.of(1, Math.exp(-decayPerMs * epochMs));
+    String doneKey = "trending:" + epoch + ":rolled-genres";
+    List<String> genres = new ArrayList<>();
+    genres.add(ALL);
+    Set<String> previousGenres = stringRedisTemplate.opsForSet().members(_genresKey(epoch - 1));
+    if (previousGenres != null) {
+      genres.addAll(previousGenres);
+    }
+    Set<String> done = stringRedisTemplate.opsForSet().members(doneKey);
+    for (String genre : genres) {
+      if (done != null && done.contains(genre)) {
+        continue;
+      }
+      String key = _key(epoch, genre);
+      // the union and its record apply together or not at all, so no genre is
+      // carried over twice
+      stringRedisTemplate.execute(new SessionCallback<Object>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+          RedisOperations<String, String> redisOperations = (RedisOperations<String, String>) operations;
+          redisOperations.multi();
+          // the new key is its own first source, so scores added meanwhile are kept
+          redisOperations.opsForZSet().unionAndStore(key, List.of(_key(epoch - 1, genre)), key,
+              Aggregate.SUM, weights);
+          redisOperations.expire(key, keyTtl);
+          redisOperations.opsForSet().add(doneKey, genre);
+          redisOperations.expire(doneKey, keyTtl);
+          return redisOperations.exec();
+        }
+      });
+    }
+    if (previousGenres != null && !previousGenres.isEmpty()) {
+      stringRedisTemplate.opsForSet().add(_genresKey(epoch), previousGenres.toArray(new String[0]));
+      stringRedisTemplate.expire(_genresKey(epoch), keyTtl);
+    }
+  }
+
+  private List<String> _readTop(String genre) {
+    long epoch = System.currentTimeMillis() / epochMs;
+    try {
+      Set<String> ids = stringRedisTemplate.opsForZSet().reverseRange(_key(epoch, genre), 0, snapshotSize - 1);
+      if (ids == null || ids.isEmpty()) {
+        // nobody has flushed (or rolled) into this epoch yet
+        ids = stringRedisTemplate.opsForZSet().reverseRange(_key(epoch - 1, genre), 0, snapshotSize - 1);
+      }
+      List<String> top = ids == null ? List.of() : List.copyOf(ids);
+      if (!top.isEmpty()) {
+        // unknown genres have empty rankings and take no entry
+        lastGood.put(genre, top);
+      }
+      return top;
+    } catch (DataAccessException e) {
+      logger.debug("Trending ranking unavailable, serving last snapshot: {}", e.getMessage());
+      List<String> top = lastGood.getIfPresent(genre);
+      return top == null ? List.of() : top;
+    }
+  }
+
+  private static void _drain(Map<String, Pending> from, Map<String, Pending> into) {
+    from.forEach((postId, counts) -> {
+      // sum then subtract what was read, so a racing add stays for the next drain
+      double weight = counts.weight.sum();
+      if (Math.abs(weight) < 1e-9) {
+        // nothing new, or floating point residue of the last drain
+        return;
+      }
+      counts.weight.add(-weight);
+      into.computeIfAbsent(postId, id -> new Pending(counts.genre)).weight.add(weight);
+    });
+  }
+
+  private Pending _pending(String postId, String genre) {
+    return pending.get().computeIfAbsent(postId, id -> new Pending(genre));
+  }
+
+  private static String _key(long epoch, String genre) {
+    return ALL.equals(genre) ? "trending:" + epoch + ":all" : "trending:" + epoch + ":genre:" + genre;
+  }
+
+  private static String _genresKey(long epoch) {
+    return "trending:" + epoch + ":genres";
+  }
+
+  private static final class Pending {
+    private final String genre;
+    private final DoubleAdder weight = new DoubleAdder();
+
+    Pending(String genre) {
+      this.genre = genre;
+    }
+  }
+}
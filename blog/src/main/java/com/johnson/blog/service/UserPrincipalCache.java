@@ -0,0 +1,138 @@
+package com.johnson.blog.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.johnson.database.projection.UserPrincipal;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/*
+ * Two-tier cache of user principals keyed by email.
+ *
+ * Tier 1 is a bounded in-process Caffeine cache, tier 2 the shared cache
+ * configured by spring.cache (Redis outside tests). A miss in both loads from
+ * the database once; concurrent misses for the same email share the load.
+ * Invalidations evict both tiers and are broadcast over Redis pub/sub so every
+ * node drops its near-cache entry.
+ */
+@Component
+public class UserPrincipalCache implements MessageListener {
+  public static final String CACHE_NAME = "userPrincipals";
+  public static final String INVALIDATION_CHANNEL = "user-principal-invalidation";
+
+  private static final Logger logger = LoggerFactory.getLogger(UserPrincipalCache.class);
+
+  private final Cache<String, UserPrincipal> localCache;
+  private final org.springframework.cache.Cache sharedCache;
+  private final StringRedisTemplate stringRedisTemplate;
+  private final boolean broadcastInvalidations;
+  private final Counter sharedHits;
+  private final Counter sharedMisses;
+  private final Counter localInvalidations;
+  private final Counter remoteInvalidations;
+
+  public UserPrincipalCache(
+      CacheManager cacheManager,
+      StringRedisTemplate stringRedisTemplate,
+      MeterRegistry meterRegistry,
+      @Value("${application.user-cache.maximum-size:50000}") long maximumSize,
+      @Value("${application.user-cache.ttl-seconds:300}") long ttlSeconds,
+      @Value("${application.user-cache.pubsub-enabled:true}") boolean broadcastInvalidations) {
+    this.sharedCache = cacheManager.getCache(CACHE_NAME);
+    this.stringRedisTemplate = stringRedisTemplate;
+    this.broadcastInvalidations = broadcastInvalidations;
+    this.localCache = Caffeine.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+        .recordStats()
+        .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, this.localCache, "user.principals.local");
+
+    this.sharedHits = meterRegistry.counter("user.principals.shared", "result", "hit");
+    this.sharedMisses = meterRegistry.counter("user.principals.shared", "result", "miss");
+    this.localInvalidations = meterRegistry.counter("user.principals.invalidations", "source", "local");
+    this.remoteInvalidations = meterRegistry.counter("user.principals.invalidations", "source", "remote");
+  }
+
+  /// returns the cached principal, loading it through the shared tier and
+  /// then the loader; exceptions of the loader (e.g. user not found) propagate
+  /// and nothing is cached
+  public UserPrincipal get(String email, Supplier<UserPrincipal> loader) {
+    return localCache.get(email, key -> {
+      UserPrincipal shared = _getShared(key);
+      if (shared != null) {
+        sharedHits.increment();
+        return shared;
+      }
+      sharedMisses.increment();
+      UserPrincipal loaded = loader.get();
+      _putShared(key, loaded);
+      return loaded;
+    });
+  }
+
+  /// call whenever a user is updated, deleted or deactivated
+  public void invalidate(String email) {
+    if (email == null) {
+      return;
+    }
+    localCache.invalidate(email);
+    localInvalidations.increment();
+    try {
+      if (sharedCache != null) {
+        sharedCache.evict(email);
+      }
+      if (broadcastInvalidations) {
+        stringRedisTemplate.convertAndSend(INVALIDATION_CHANNEL, email);
+      }
+    } catch (RuntimeException e) {
+      // the near cache still expires on its own ttl
+      logger.warn("Could not propagate user cache invalidation: {}", e.getMessage());
+    }
+  }
+
+  /// invalidation broadcast by another node (or this one)
+  @Override
+  public void onMessage(Message message, byte[] pattern) {
+    localCache.invalidate(new String(message.getBody(), StandardCharsets.UTF_8));
+    remoteInvalidations.increment();
+  }
+
+  private UserPrincipal _getShared(String email) {
+    if (sharedCache == null) {
+      return null;
+    }
+    try {
+      return sharedCache.get(email, UserPrincipal.class);
+    } catch (RuntimeException e) {
+      logger.warn("Shared user cache unavailable: {}", e.getMessage());
+      return null;
+    }
+  }
+
+  private void _putShared(String email, UserPrincipal principal) {
+    if (sharedCache == null) {
+      return;
+    }
+    try {
+      sharedCache.put(email, principal);
+    } catch (RuntimeException e) {
+      logger.warn("Shared user cache unavailable: {}", e.getMessage());
+    }
+  }
+}
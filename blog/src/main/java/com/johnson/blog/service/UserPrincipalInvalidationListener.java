@@ -0,0 +1,82 @@
+package com.johnson.blog.service;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+
+import com.johnson.database.model.UserModel;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+
+/*
+ * Evicts a user's cached principal once an update or delete of the
+ * UserModel has committed (this covers deactivation and soft deletion,
+ * which are updates). Bulk/native queries bypass Hibernate events and must
+ * call UserPrincipalCache.invalidate themselves.
+ */
+@Component
+public class UserPrincipalInvalidationListener
+    implements PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+  private final EntityManagerFactory entityManagerFactory;
+  private final UserPrincipalCache userPrincipalCache;
+
+  public UserPrincipalInvalidationListener(EntityManagerFactory entityManagerFactory,
+      UserPrincipalCache userPrincipalCache) {
+    this.entityManagerFactory = entityManagerFactory;
+    this.userPrincipalCache = userPrincipalCache;
+  }
+
+  @PostConstruct
+  public void register() {
+    EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+        .getServiceRegistry()
+        .getService(EventListenerRegistry.class);
+    registry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+    registry.appendListeners(EventType.POST_COMMIT_DELETE, this);
+  }
+
+  @Override
+  public void onPostUpdate(PostUpdateEvent event) {
+    if (event.getEntity() instanceof UserModel user) {
+      userPrincipalCache.invalidate(user.getEmail());
+      // the email itself may have changed
+      String[] propertyNames = event.getPersister().getPropertyNames();
+      Object[] oldState = event.getOldState();
+      for (int i = 0; oldState != null && i < propertyNames.length; i++) {
+        if ("email".equals(propertyNames[i]) && oldState[i] instanceof String oldEmail
+            && !oldEmail.equals(user.getEmail())) {
+          userPrincipalCache.invalidate(oldEmail);
+        }
+      }
+    }
+  }
+
+  @Override
+  public void onPostDelete(PostDeleteEvent event) {
+    if (event.getEntity() instanceof UserModel user) {
+      userPrincipalCache.invalidate(user.getEmail());
+    }
+  }
+
+  @Override
+  public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+    // nothing changed, nothing to evict
+  }
+
+  @Override
+  public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+    // nothing changed, nothing to evict
+  }
+
+  @Override
+  public boolean requiresPostCommitHandling(EntityPersister persister) {
+    return UserModel.class.equals(persister.getMappedClass());
+  }
+}
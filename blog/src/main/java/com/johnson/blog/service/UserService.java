@@ -2,47 +2,125 @@ package com.johnson.blog.service;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.RequestParam;
 
-import com.johnson.database.model.UserModel;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.johnson.database.projection.UserPrincipal;
 import com.johnson.database.repository.UserRepository;
+import com.johnson.utilities.PageCursor;
 import com.johnson.utilities.dtos.BaseApiResponse;
-import com.johnson.utilities.dtos.PaginationMeta;
+import com.johnson.utilities.dtos.CursorPaginationMeta;
 import com.johnson.utilities.dtos.authDtos.UserDataResponseDto;
+import com.johnson.utilities.exceptions.BadRequestException;
 
 @Service
-@Transactional
+@Transactional(readOnly = true)
 public class UserService {
+  private static final Logger logger = LoggerFactory.getLogger(UserService.class);
+  // sorts before every UUID id
+  private static final String FIRST_ID = "00000000-0000-0000-0000-000000000000";
+  private static final int MAX_PAGE_SIZE = 100;
+
   private UserRepository userRepository;
+  private JdbcTemplate jdbcTemplate;
+
+  /// exact count, recomputed at most once per ttl instead of on every page
+  private final Cache<String, Long> countCache;
 
   public UserService(
-      UserRepository userRepository) {
+      UserRepository userRepository,
+      JdbcTemplate jdbcTemplate,
+      @Value("${application.pagination.count-cache-ttl-seconds:60}") long countCacheTtlSeconds) {
     this.userRepository = userRepository;
+    this.jdbcTemplate = jdbcTemplate;
+    this.countCache = Caffeine.newBuilder()
+        .expireAfterWrite(countCacheTtlSeconds, TimeUnit.SECONDS)
+        .build();
   }
 
-  @GetMapping("/users")
-  public ResponseEntity<BaseApiResponse<List<UserDataResponseDto>>> getUsers(
-      @RequestParam(defaultValue = "1") int page,
-      @RequestParam(defaultValue = "10") int size) {
-    List<UserModel> users = userRepository.getUsers(page, size);
-    List<UserDataResponseDto> UserDataResponseDto = new ArrayList<>();
-    for (UserModel user : users) {
-      UserDataResponseDto.add(new UserDataResponseDto(user.getId(),
-          user.getFirstname(), user.getEmail(), user.getCreatedAt(), user.getUpdatedAt()));
+  /// Keyset page of users. count is "none" (default), "estimate" (planner
+  /// statistics, O(1)) or "exact" (cached).
+  public ResponseEntity<BaseApiResponse<List<UserDataResponseDto>>> getUsers(String cursor, int size, String count) {
+    if (size < 1 || size > MAX_PAGE_SIZE) {
+      throw new BadRequestException("size must be between 1 and " + MAX_PAGE_SIZE);
+    }
+    String afterId = cursor == null || cursor.isBlank() ? FIRST_ID : _decodeCursor(cursor);
+
+    // one extra row tells whether there is a next page, without counting
+    List<UserPrincipal> users = userRepository.findPageAfter(afterId, PageRequest.ofSize(size + 1));
+    boolean hasNext = users.size() > size;
+    if (hasNext) {
+      users = users.subList(0, size);
+    }
+
+    List<UserDataResponseDto> userDataResponseDtos = new ArrayList<>();
+    for (UserPrincipal user : users) {
+      userDataResponseDtos.add(new UserDataResponseDto(user.id(),
+          user.firstname(), user.email(), user.createdAt(), user.updatedAt()));
+    }
+    String nextCursor = hasNext ? PageCursor.encode(users.get(users.size() - 1).id()) : null;
+
+    Long totalItems = null;
+    Boolean totalEstimated = null;
+    switch (count == null ? "none" : count) {
+      case "none" -> {
+      }
+      case "estimate" -> {
+        Long estimate = _estimateUserCount();
+        totalEstimated = estimate != null;
+        totalItems = estimate != null ? estimate : _exactUserCount();
+      }
+      case "exact" -> {
+        totalEstimated = false;
+        totalItems = _exactUserCount();
+      }
+      default -> throw new BadRequestException("count must be one of none, estimate, exact");
     }
-    long totalItems = userRepository.countUsers();
-    int totalPages = (int) Math.ceil((double) totalItems / size);
 
-    PaginationMeta meta = new PaginationMeta(page, size, totalItems, totalPages);
+    CursorPaginationMeta meta = new CursorPaginationMeta(size, nextCursor, hasNext, totalItems, totalEstimated);
     BaseApiResponse<List<UserDataResponseDto>> response = BaseApiResponse.successWithPagination(
         "Users fetched successfully",
-        UserDataResponseDto, meta);
+        200,
+        userDataResponseDtos, meta);
 
     return ResponseEntity.ok(response);
   }
+
+  private String _decodeCursor(String cursor) {
+    String id = PageCursor.decode(cursor, 1)[0];
+    try {
+      return UUID.fromString(id).toString();
+    } catch (IllegalArgumentException e) {
+      throw new BadRequestException("Invalid cursor");
+    }
+  }
+
+  private long _exactUserCount() {
+    return countCache.get("users", key -> userRepository.count());
+  }
+
+  /// row estimate kept by PostgreSQL's planner statistics; null when there is
+  /// none (table never analyzed, or not PostgreSQL)
+  private Long _estimateUserCount() {
+    try {
+      Long estimate = jdbcTemplate.queryForObject(
+          "SELECT reltuples::bigint FROM pg_class WHERE oid = 'blog_users'::regclass", Long.class);
+      return estimate != null && estimate >= 0 ? estimate : null;
+    } catch (DataAccessException e) {
+      logger.debug("No row estimate for blog_users: {}", e.getMessage());
+      return null;
+    }
+  }
 }
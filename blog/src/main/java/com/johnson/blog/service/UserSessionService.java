@@ -0,0 +1,89 @@
+package com.johnson.blog.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import com.johnson.database.model.UserSessionModel;
+import com.johnson.database.repository.UserRepository;
+import com.johnson.database.repository.UserSessionRepository;
+import com.johnson.utilities.UUIDGenerator;
+import com.johnson.utilities.exceptions.BadRequestException;
+import com.johnson.utilities.exceptions.InternalServerException;
+import com.johnson.utilities.exceptions.ValidationException;
+
+import jakarta.transaction.Transactional;
+
+/*
+ * The database side of a login, in its own transaction.
+ *
+ * AuthenticationService checks the credentials (a queued BCrypt hash) before
+ * calling in here, so the pool connection of the transaction is only held for
+ * the session writes, never while a login waits on the password encoder.
+ */
+@Service
+public class UserSessionService {
+  private final UserRepository userRepository;
+  private final UserSessionRepository userSessionRepository;
+  private final RedisSessionService redisSessionService;
+  private final SessionEnrichmentService sessionEnrichmentService;
+
+  // INSERT ... ON CONFLICT needs PostgreSQL; off in the H2 test profile
+  @Value("${application.session.native-upsert:true}")
+  private boolean nativeSessionUpsert = true;
+
+  public UserSessionService(
+      UserRepository userRepository,
+      UserSessionRepository userSessionRepository,
+      RedisSessionService redisSessionService,
+      SessionEnrichmentService sessionEnrichmentService) {
+    this.userRepository = userRepository;
+    this.userSessionRepository = userSessionRepository;
+    this.redisSessionService = redisSessionService;
+    this.sessionEnrichmentService = sessionEnrichmentService;
+  }
+
+  /// saves the device session with its new jti, queues the Redis copy and,
+  /// when the location was deferred, its lookup after commit
+  @Transactional(rollbackOn = {
+      InternalServerException.class,
+      BadRequestException.class,
+      ValidationException.class,
+      DataIntegrityViolationException.class
+  })
+  public void openSession(String userId, String deviceId, String jti, String ipAddress, String location) {
+    this._upsertSession(userId, deviceId, jti, ipAddress, location);
+    redisSessionService.saveSession(userId, deviceId, ipAddress, location, jti);
+    sessionEnrichmentService.enrichAfterCommit(userId, deviceId, ipAddress, location);
+  }
+
+  /// creates the device session or re-activates the caller's own one with the
+  /// new jti; a device id held by another user is rejected
+  private void _upsertSession(String userId, String deviceId, String jti, String ipAddress, String location) {
+    if (nativeSessionUpsert) {
+      // one round trip: insert, or update when this user already owns the device
+      userSessionRepository
+          .upsertSession(UUIDGenerator.generateUUIDv7(), userId, deviceId, jti, ipAddress, location)
+          .orElseThrow(() -> new BadRequestException("device id must be unique"));
+      return;
+    }
+
+    // portable path (H2): returning devices, the common case, need only the update
+    int updated = userSessionRepository.updateJtiAndIsLoggedOut(jti, userId, deviceId, ipAddress, location, false);
+    if (updated > 0) {
+      return;
+    }
+    if (userSessionRepository.existsByDeviceIdNative(deviceId)) {
+      throw new BadRequestException("device id must be unique");
+    }
+
+    UserSessionModel userSessionModel = new UserSessionModel();
+    userSessionModel.setJti(jti);
+    userSessionModel.setDeviceId(deviceId);
+    userSessionModel.setIpAddress(ipAddress);
+    userSessionModel.setLocation(location);
+    // a proxy is enough to set the foreign key, no need to load the user
+    userSessionModel.setUser(userRepository.getReferenceById(userId));
+    userSessionRepository.save(userSessionModel);
+  }
+}
@@ -0,0 +1,46 @@
+package com.johnson.blog.service;
+
+import java.util.Date;
+
+import io.jsonwebtoken.Claims;
+
+/*
+ * Result of a single signature/expiry verification of a JWT.
+ * JwtService produces one of these per request so the filter, the revocation
+ * check and the logout flow read the claims without parsing the token again.
+ */
+public record VerifiedToken(String token, String tokenType, Claims claims) {
+
+  /// Request attribute under which JwtAuthenticationFilter stores the verified
+  /// access token, so that downstream services do not re-parse the header.
+  public static final String REQUEST_ATTRIBUTE = VerifiedToken.class.getName();
+
+  public String claim(String claimName) {
+    return claims.get(claimName, String.class);
+  }
+
+  public String email() {
+    return claim("email");
+  }
+
+  public String userId() {
+    return claim("userId");
+  }
+
+  public String deviceId() {
+    return claim("deviceId");
+  }
+
+  public String jti() {
+    return claim("jti");
+  }
+
+  public Date expiration() {
+    return claims.getExpiration();
+  }
+
+  public boolean isExpired() {
+    Date expiration = expiration();
+    return expiration != null && expiration.before(new Date());
+  }
+}
@@ -0,0 +1,116 @@
+package com.johnson.blog.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/*
+ * In-process cache of already verified token claims, keyed by the SHA-256
+ * digest of the raw token (the token itself is never kept as a key).
+ * Clients resend the same access token until it expires, so a hit skips the
+ * HMAC check and the JSON parsing entirely.
+ * Entries never outlive the token's own "exp", the cache is size bounded
+ * (Caffeine's W-TinyLFU eviction) and safe for concurrent filter threads.
+ */
+@Component
+public class VerifiedTokenCache {
+  private final boolean enabled;
+  private final long maxTtlNanos;
+  private final Cache<String, Claims> cache;
+
+  public VerifiedTokenCache(
+      @Value("${application.security.jwt.cache.enabled:true}") boolean enabled,
+      @Value("${application.security.jwt.cache.maximum-size:100000}") long maximumSize,
+      @Value("${application.security.jwt.cache.max-ttl-seconds:900}") long maxTtlSeconds,
+      MeterRegistry meterRegistry) {
+    this.enabled = enabled;
+    this.maxTtlNanos = TimeUnit.SECONDS.toNanos(maxTtlSeconds);
+    this.cache = Caffeine.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfter(new TokenExpiry())
+        .recordStats()
+        .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, this.cache, "jwt.verified-tokens");
+  }
+
+  public Claims get(String token, String tokenType) {
+    if (!enabled) {
+      return null;
+    }
+    return cache.getIfPresent(_digest(token, tokenType));
+  }
+
+  public void put(String token, String tokenType, Claims claims) {
+    if (!enabled || _remainingNanos(claims) <= 0) {
+      return;
+    }
+    cache.put(_digest(token, tokenType), claims);
+  }
+
+  /// drops the entry of a token, e.g. on logout
+  public void evict(String token, String tokenType) {
+    if (enabled) {
+      cache.invalidate(_digest(token, tokenType));
+    }
+  }
+
+  /// hit, miss and eviction counters
+  public CacheStats stats() {
+    return cache.stats();
+  }
+
+  private long _remainingNanos(Claims claims) {
+    Date expiration = claims.getExpiration();
+    if (expiration == null) {
+      return maxTtlNanos;
+    }
+    long remaining = TimeUnit.MILLISECONDS.toNanos(expiration.getTime() - System.currentTimeMillis());
+    return Math.min(remaining, maxTtlNanos);
+  }
+
+  private String _digest(String token, String tokenType) {
+    try {
+      MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+      messageDigest.update(tokenType.getBytes(StandardCharsets.UTF_8));
+      messageDigest.update((byte) ':');
+      byte[] digest = messageDigest.digest(token.getBytes(StandardCharsets.UTF_8));
+      return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+    } catch (NoSuchAlgorithmException e) {
+      // SHA-256 is mandatory on every JVM
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /// expires every entry no later than the token's own expiration
+  private class TokenExpiry implements Expiry<String, Claims> {
+    @Override
+    public long expireAfterCreate(String key, Claims claims, long currentTime) {
+      return Math.max(0, _remainingNanos(claims));
+    }
+
+    @Override
+    public long expireAfterUpdate(String key, Claims claims, long currentTime, long currentDuration) {
+      return Math.max(0, _remainingNanos(claims));
+    }
+
+    @Override
+    public long expireAfterRead(String key, Claims claims, long currentTime, long currentDuration) {
+      return currentDuration;
+    }
+  }
+}
@@ -0,0 +1,18 @@
+-- Sets one field of a session hash, but only while the hash exists: a partial
+-- update must not recreate a session that was deleted or has expired (it
+-- would come back incomplete and without a ttl).
+-- KEYS[1]: session hash
+-- KEYS[2]: the user's device index set
+-- ARGV[1]: field
+-- ARGV[2]: serialized value
+-- ARGV[3]: new expiry of both keys in epoch milliseconds, or '' to keep it
+-- returns 1 when the field was set, 0 when the session is absent
+if redis.call('EXISTS', KEYS[1]) == 0 then
+  return 0
+end
+redis.call('HSET', KEYS[1], ARGV[1], ARGV[2])
+if ARGV[3] ~= '' then
+  redis.call('PEXPIREAT', KEYS[1], ARGV[3])
+  redis.call('PEXPIREAT', KEYS[2], ARGV[3])
+end
+return 1
@@ -0,0 +1,44 @@
+-- Token buckets for one request, checked and charged atomically.
+-- KEYS: one bucket per subject (ip, email, device, ...)
+-- ARGV[1]: bucket capacity
+-- ARGV[2]: refill rate in tokens per millisecond
+-- ARGV[3]: ttl of an idle bucket in milliseconds
+-- returns {allowed (1/0), retry after in milliseconds}
+local capacity = tonumber(ARGV[1])
+local rate = tonumber(ARGV[2])
+local ttl = tonumber(ARGV[3])
+
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+local tokens = {}
+local wait = 0
+for i, key in ipairs(KEYS) do
+  local state = redis.call('HMGET', key, 'tokens', 'ts')
+  local available = tonumber(state[1])
+  local updated = tonumber(state[2])
+  if available == nil or updated == nil then
+    available = capacity
+    updated = now
+  end
+  available = math.min(capacity, available + math.max(0, now - updated) * rate)
+  tokens[i] = available
+  if available < 1 then
+    wait = math.max(wait, math.ceil((1 - available) / rate))
+  end
+end
+
+-- a request is charged only if every bucket has a token
+local cost = 1
+if wait > 0 then
+  cost = 0
+end
+for i, key in ipairs(KEYS) do
+  redis.call('HSET', key, 'tokens', tostring(tokens[i] - cost), 'ts', tostring(now))
+  redis.call('PEXPIRE', key, ttl)
+end
+
+if wait > 0 then
+  return {0, wait}
+end
+return {1, 0}
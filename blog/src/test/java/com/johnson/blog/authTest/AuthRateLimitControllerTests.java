@@ -0,0 +1,123 @@
+package com.johnson.blog.authTest;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import com.johnson.utilities.dtos.authDtos.UserLoginDto;
+
+/// the limiter is on here, with two tokens per bucket; buckets live in the
+/// test Redis and outlast a run, so every test calls from its own addresses
+@TestPropertySource(properties = {
+    "application.rate-limit.enabled=true",
+    "application.rate-limit.login.capacity=2",
+    "application.rate-limit.login.refill-per-minute=1",
+    "application.rate-limit.refresh.capacity=2",
+    "application.rate-limit.refresh.refill-per-minute=1"
+})
+public class AuthRateLimitControllerTests extends BaseAuthControllerTest {
+
+  private static String _randomIp() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    return "10." + random.nextInt(256) + "." + random.nextInt(256) + "." + random.nextInt(1, 255);
+  }
+
+  private static String _randomEmail() {
+    return "user-" + UUID.randomUUID() + "@example.com";
+  }
+
+  private ResultActions _login(String email, String ip) throws Exception {
+    UserLoginDto userLoginDto = new UserLoginDto();
+    userLoginDto.setEmail(email);
+    userLoginDto.setPassword(TEST_PASSWORD);
+    userLoginDto.setDeviceId(UUID.randomUUID().toString());
+    return mockMvc.perform(MockMvcRequestBuilders.post(LOGIN_URL)
+        .with(request -> {
+          request.setRemoteAddr(ip);
+          return request;
+        })
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(objectMapper.writeValueAsString(userLoginDto)));
+  }
+
+  private ResultActions _refresh(String refreshToken, String ip) throws Exception {
+    return mockMvc.perform(MockMvcRequestBuilders.post(REFRESH_URL)
+        .with(request -> {
+          request.setRemoteAddr(ip);
+          return request;
+        })
+        .header("X-Refresh-Token", refreshToken));
+  }
+
+  @Test
+  public void whenLoginBucketEmpty_thenReturns429WithRetryAfter() throws Exception {
+    String email = _randomEmail();
+    register(email);
+    String ip = _randomIp();
+
+    _login(email, ip).andExpect(status().isOk());
+    _login(email, ip).andExpect(status().isOk());
+
+    MvcResult rejected = _login(email, ip)
+        .andExpect(status().isTooManyRequests())
+        .andExpect(jsonPath("$.message").value("Too many requests, please retry later"))
+        .andExpect(header().exists(HttpHeaders.RETRY_AFTER))
+        .andReturn();
+    // one token every minute
+    long retryAfter = Long.parseLong(rejected.getResponse().getHeader(HttpHeaders.RETRY_AFTER));
+    assertTrue(retryAfter >= 1 && retryAfter <= 60);
+  }
+
+  @Test
+  public void whenEmailThrottled_thenOtherSubjectsStillPass() throws Exception {
+    String email = _randomEmail();
+    register(email);
+    // a different address each time: only the email bucket runs dry
+    _login(email, _randomIp()).andExpect(status().isOk());
+    _login(email, _randomIp()).andExpect(status().isOk());
+    _login(email, _randomIp()).andExpect(status().isTooManyRequests());
+
+    String otherEmail = _randomEmail();
+    register(otherEmail);
+    _login(otherEmail, _randomIp()).andExpect(status().isOk());
+  }
+
+  @Test
+  public void whenRefreshedFromManyAddresses_thenDeviceBucketStillApplies() throws Exception {
+    String email = _randomEmail();
+    register(email);
+    String refreshToken = _login(email, _randomIp())
+        .andExpect(status().isOk())
+        .andReturn().getResponse().getHeader("X-Refresh-Token");
+
+    // the device comes from the verified refresh token, so fresh addresses do not help
+    for (int i = 0; i < 2; i++) {
+      refreshToken = _refresh(refreshToken, _randomIp())
+          .andExpect(status().isOk())
+          .andReturn().getResponse().getHeader("X-Refresh-Token");
+    }
+    _refresh(refreshToken, _randomIp())
+        .andExpect(status().isTooManyRequests())
+        .andExpect(header().exists(HttpHeaders.RETRY_AFTER));
+  }
+
+  @Test
+  public void whenRefreshTokenInvalid_thenOnlyAddressBucketIsCharged() throws Exception {
+    String ip = _randomIp();
+
+    // no device subject: a forged token neither passes nor drains a device's bucket
+    _refresh("not-a-token", ip).andExpect(status().isUnauthorized());
+    _refresh("not-a-token", ip).andExpect(status().isUnauthorized());
+    _refresh("not-a-token", ip).andExpect(status().isTooManyRequests());
+  }
+}
@@ -0,0 +1,166 @@
+package com.johnson.blog.authTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+public class AuthRefreshControllerTests extends BaseAuthControllerTest {
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Test
+  public void whenValidRefreshToken_thenReturnsRotatedTokens() throws Exception {
+    MvcResult login = registerAndLogin();
+
+    MvcResult refreshed = mockMvc.perform(MockMvcRequestBuilders.post(REFRESH_URL)
+        .header("X-Refresh-Token", refreshToken(login)))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.accessToken").isString())
+        .andExpect(header().exists("X-Refresh-Token"))
+        .andReturn();
+
+    // the rotated token is the current one now
+    mockMvc.perform(MockMvcRequestBuilders.post(REFRESH_URL)
+        .header("X-Refresh-Token", refreshToken(refreshed)))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void whenSameRefreshTokenUsedConcurrently_thenWinnerKeepsSession() throws Exception {
+    String refreshToken = refreshToken(registerAndLogin());
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<MvcResult>> results = new ArrayList<>();
+    try {
+      for (int i = 0; i < 2; i++) {
+        results.add(executor.submit(() -> {
+          start.await();
+          return mockMvc.perform(MockMvcRequestBuilders.post(REFRESH_URL)
+              .header("X-Refresh-Token", refreshToken))
+              .andReturn();
+        }));
+      }
+      start.countDown();
+
+      MvcResult winner = null;
+      int unauthorized = 0;
+      for (Future<MvcResult> result : results) {
+        MvcResult mvcResult = result.get(30, TimeUnit.SECONDS);
+        int status = mvcResult.getResponse().getStatus();
+        if (status == 200) {
+          assertNull(winner, "both refreshes succeeded");
+          winner = mvcResult;
+        }
+        unauthorized += status == 401 ? 1 : 0;
+      }
+      assertNotNull(winner);
+      assertEquals(1, unauthorized);
+
+      // losing the race is not reuse: the winner's rotated token still works
+      mockMvc.perform(MockMvcRequestBuilders.post(REFRESH_URL)
+          .header("X-Refresh-Token", refreshToken(winner)))
+          .andExpect(status().isOk());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void whenRotatedRefreshTokenReplayedWithinGrace_thenOnlyReplayIsRejected() throws Exception {
+    String original = refreshToken(registerAndLogin());
+
+    MvcResult refreshed = mockMvc.perform(MockMvcRequestBuilders.post(REFRESH_URL)
+        .header("X-Refresh-Token", original))
+        .andExpect(status().isOk())
+        .andReturn();
+
+    mockMvc.perform(MockMvcRequestBuilders.post(REFRESH_URL)
+        .header("X-Refresh-Token", original))
+        .andExpect(status().isUnauthorized())
+        .andExpect(jsonPath("$.message").value("Invalid session"));
+
+    mockMvc.perform(MockMvcRequestBuilders.post(REFRESH_URL)
+        .header("X-Refresh-Token", refreshToken(refreshed)))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void whenRotatedRefreshTokenReplayed_thenDeviceIsRevoked() throws Exception {
+    MvcResult login = registerAndLogin();
+    String original = refreshToken(login);
+
+    MvcResult refreshed = mockMvc.perform(MockMvcRequestBuilders.post(REFRESH_URL)
+        .header("X-Refresh-Token", original))
+        .andExpect(status().isOk())
+        .andReturn();
+    _rotatedBeforeGrace(userId(login));
+
+    mockMvc.perform(MockMvcRequestBuilders.post(REFRESH_URL)
+        .header("X-Refresh-Token", original))
+        .andExpect(status().isUnauthorized())
+        .andExpect(jsonPath("$.message").value("Refresh token reuse detected, please login again"))
+        .andExpect(jsonPath("$.status").value(401));
+
+    // the revocation also kills the token the legitimate client holds
+    mockMvc.perform(MockMvcRequestBuilders.post(REFRESH_URL)
+        .header("X-Refresh-Token", refreshToken(refreshed)))
+        .andExpect(status().isUnauthorized())
+        .andExpect(jsonPath("$.message").value("Invalid session"));
+  }
+
+  @Test
+  public void whenTokenOfEarlierLoginReplayed_thenNewLoginSurvives() throws Exception {
+    String email = "user-" + UUID.randomUUID() + "@example.com";
+    String deviceId = UUID.randomUUID().toString();
+    register(email);
+    MvcResult firstLogin = login(email, deviceId);
+    String original = refreshToken(firstLogin);
+    mockMvc.perform(MockMvcRequestBuilders.post(REFRESH_URL)
+        .header("X-Refresh-Token", original))
+        .andExpect(status().isOk());
+
+    // logging in again on the device starts a new rotation chain
+    MvcResult secondLogin = login(email, deviceId);
+    _rotatedBeforeGrace(userId(firstLogin));
+
+    mockMvc.perform(MockMvcRequestBuilders.post(REFRESH_URL)
+        .header("X-Refresh-Token", original))
+        .andExpect(status().isUnauthorized())
+        .andExpect(jsonPath("$.message").value("Invalid session"));
+
+    mockMvc.perform(MockMvcRequestBuilders.post(REFRESH_URL)
+        .header("X-Refresh-Token", refreshToken(secondLogin)))
+        .andExpect(status().isOk());
+  }
+
+  /// moves the user's sessions' last rotation out of the reuse grace window
+  private void _rotatedBeforeGrace(String userId) {
+    jdbcTemplate.update("UPDATE blog_user_sessions SET updated_at = ? WHERE user_id = ?",
+        OffsetDateTime.now().minusMinutes(1), userId);
+  }
+
+  @Test
+  public void whenRefreshTokenMissing_thenReturns401() throws Exception {
+    mockMvc.perform(MockMvcRequestBuilders.post(REFRESH_URL))
+        .andExpect(status().isUnauthorized())
+        .andExpect(jsonPath("$.message").value("Refresh token missing"));
+  }
+}
@@ -1,14 +1,24 @@
 package com.johnson.blog.authTest;
 
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.UUID;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.JsonPath;
 import com.johnson.blog.configTest.TestConfig;
+import com.johnson.utilities.dtos.authDtos.UserLoginDto;
+import com.johnson.utilities.dtos.authDtos.UserRegistrationDto;
 
 @SpringBootTest
 @ActiveProfiles("test")
@@ -30,4 +40,48 @@ public abstract class BaseAuthControllerTest {
   protected final String TEST_PASSWORD = "SecurePass123!";
   protected final String TEST_CONFIRMPASSWORD = "SecurePass123!";
   protected final String TEST_FIRSTNAME = "Test";
+
+  /// registers a user under a fresh email and logs in on a fresh device; the
+  /// context (and its database) is shared by all test classes
+  protected MvcResult registerAndLogin() throws Exception {
+    String email = "user-" + UUID.randomUUID() + "@example.com";
+    register(email);
+    return login(email, UUID.randomUUID().toString());
+  }
+
+  protected void register(String email) throws Exception {
+    UserRegistrationDto userRegistrationDto = new UserRegistrationDto(
+        TEST_FIRSTNAME,
+        email,
+        TEST_PASSWORD,
+        TEST_CONFIRMPASSWORD);
+    mockMvc.perform(MockMvcRequestBuilders.post(REGISTER_URL)
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(objectMapper.writeValueAsString(userRegistrationDto)))
+        .andExpect(status().isCreated());
+  }
+
+  protected MvcResult login(String email, String deviceId) throws Exception {
+    UserLoginDto userLoginDto = new UserLoginDto();
+    userLoginDto.setEmail(email);
+    userLoginDto.setPassword(TEST_PASSWORD);
+    userLoginDto.setDeviceId(deviceId);
+    return mockMvc.perform(MockMvcRequestBuilders.post(LOGIN_URL)
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(objectMapper.writeValueAsString(userLoginDto)))
+        .andExpect(status().isOk())
+        .andReturn();
+  }
+
+  protected String accessToken(MvcResult login) throws Exception {
+    return JsonPath.read(login.getResponse().getContentAsString(), "$.data.accessToken.token");
+  }
+
+  protected String refreshToken(MvcResult login) {
+    return login.getResponse().getHeader("X-Refresh-Token");
+  }
+
+  protected String userId(MvcResult login) throws Exception {
+    return JsonPath.read(login.getResponse().getContentAsString(), "$.data.userData.id");
+  }
 }
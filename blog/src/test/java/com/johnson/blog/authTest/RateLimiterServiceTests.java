@@ -0,0 +1,61 @@
+package com.johnson.blog.authTest;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import com.johnson.blog.service.RateLimiterService;
+import com.johnson.utilities.exceptions.TooManyRequestsException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/// the in-memory buckets used while Redis is unreachable
+public class RateLimiterServiceTests {
+  private final StringRedisTemplate stringRedisTemplate = mock(StringRedisTemplate.class);
+  private final RateLimiterService rateLimiterService = new RateLimiterService(stringRedisTemplate,
+      new SimpleMeterRegistry(), true, 2, 1, 2, 1);
+
+  public RateLimiterServiceTests() {
+    when(stringRedisTemplate.execute(any(RedisScript.class), anyList(), any(), any(), any()))
+        .thenThrow(new RedisConnectionFailureException("connection refused"));
+  }
+
+  @Test
+  public void whenRedisDown_thenLocalBucketsLimit() {
+    assertDoesNotThrow(() -> rateLimiterService.acquire("login", "ip:10.0.0.1", "email:a@example.com"));
+    assertDoesNotThrow(() -> rateLimiterService.acquire("login", "ip:10.0.0.1", "email:a@example.com"));
+
+    TooManyRequestsException rejected = assertThrows(TooManyRequestsException.class,
+        () -> rateLimiterService.acquire("login", "ip:10.0.0.1", "email:a@example.com"));
+    assertTrue(rejected.getRetryAfterSeconds() >= 1 && rejected.getRetryAfterSeconds() <= 60);
+  }
+
+  @Test
+  public void whenOneSubjectEmpty_thenNoBucketIsCharged() {
+    rateLimiterService.acquire("login", "ip:10.0.0.2");
+    rateLimiterService.acquire("login", "ip:10.0.0.2");
+
+    // rejected on the address: the email bucket must stay full
+    assertThrows(TooManyRequestsException.class,
+        () -> rateLimiterService.acquire("login", "ip:10.0.0.2", "email:b@example.com"));
+    assertDoesNotThrow(() -> rateLimiterService.acquire("login", "ip:10.0.0.3", "email:b@example.com"));
+    assertDoesNotThrow(() -> rateLimiterService.acquire("login", "ip:10.0.0.4", "email:b@example.com"));
+  }
+
+  @Test
+  public void whenRoutesDiffer_thenBucketsAreSeparate() {
+    rateLimiterService.acquire("login", "device:d1");
+    rateLimiterService.acquire("login", "device:d1");
+
+    assertDoesNotThrow(() -> rateLimiterService.acquire("refresh", "device:d1"));
+  }
+}
@@ -0,0 +1,121 @@
+package com.johnson.blog.counterTest;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.johnson.blog.service.PostCounterService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class PostCounterServiceTests {
+  private static final String POST_ID = "0190a3c2-7b1e-7000-8000-000000000001";
+
+  private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+  private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+  private final PostCounterService postCounterService = new PostCounterService(jdbcTemplate,
+      new TransactionTemplate(transactionManager), new SimpleMeterRegistry(), false, 500);
+
+  private void _record() {
+    postCounterService.recordView(POST_ID);
+    postCounterService.recordView(POST_ID);
+    postCounterService.recordView(POST_ID);
+    postCounterService.recordLike(POST_ID, 1);
+  }
+
+  @SuppressWarnings("unchecked")
+  private void _assertFlushedOnce() {
+    ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+    verify(jdbcTemplate, times(1)).batchUpdate(anyString(), rows.capture());
+    assertEquals(1, rows.getValue().size());
+    assertArrayEquals(new Object[] { 3L, 1L, POST_ID }, rows.getValue().get(0));
+    assertEquals(0, postCounterService.pendingViews(POST_ID));
+    assertEquals(0, postCounterService.pendingLikes(POST_ID));
+  }
+
+  @Test
+  public void whenTransactionCannotStart_thenDeltasAreKeptForNextFlush() {
+    when(transactionManager.getTransaction(any()))
+        .thenThrow(new CannotCreateTransactionException("pool exhausted"))
+        .thenReturn(new SimpleTransactionStatus());
+    _record();
+
+    postCounterService.flush();
+    verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    assertEquals(3, postCounterService.pendingViews(POST_ID));
+    assertEquals(1, postCounterService.pendingLikes(POST_ID));
+
+    postCounterService.flush();
+    _assertFlushedOnce();
+  }
+
+  @Test
+  public void whenCommitFails_thenDeltasAreKeptForNextFlush() {
+    when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+    doThrow(new TransactionSystemException("commit failed"))
+        .doNothing()
+        .when(transactionManager).commit(any());
+    _record();
+
+    postCounterService.flush();
+    assertEquals(3, postCounterService.pendingViews(POST_ID));
+    assertEquals(1, postCounterService.pendingLikes(POST_ID));
+
+    // the rolled back write is repeated, once, with the same deltas
+    postCounterService.flush();
+    @SuppressWarnings("unchecked")
+    ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+    verify(jdbcTemplate, times(2)).batchUpdate(anyString(), rows.capture());
+    assertArrayEquals(new Object[] { 3L, 1L, POST_ID }, rows.getAllValues().get(1).get(0));
+    assertEquals(0, postCounterService.pendingViews(POST_ID));
+  }
+
+  @Test
+  public void whenWriteFails_thenDeltasAreKeptForNextFlush() {
+    when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+    when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+        .thenThrow(new QueryTimeoutException("statement timeout"))
+        .thenReturn(new int[] { 1 });
+    _record();
+
+    postCounterService.flush();
+    assertEquals(3, postCounterService.pendingViews(POST_ID));
+
+    postCounterService.flush();
+    assertEquals(0, postCounterService.pendingViews(POST_ID));
+    assertEquals(0, postCounterService.pendingLikes(POST_ID));
+  }
+
+  @Test
+  public void whenFlushSucceeds_thenOneRowPerPost() {
+    when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+    _record();
+
+    postCounterService.flush();
+    _assertFlushedOnce();
+
+    // nothing new: no write
+    postCounterService.flush();
+    verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyList());
+  }
+}
@@ -0,0 +1,78 @@
+package com.johnson.blog.geoTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.johnson.blog.service.IpLocationDatabase;
+
+public class IpLocationDatabaseTests {
+  @TempDir
+  Path tempDir;
+
+  private Path _writeDataset(String content) throws Exception {
+    Path dataset = tempDir.resolve("ip-ranges.csv");
+    Files.writeString(dataset, content);
+    return dataset;
+  }
+
+  @Test
+  public void whenAddressInRange_thenReturnsLocation() throws Exception {
+    Path dataset = _writeDataset("""
+        # start,end,location
+        102.88.0.0,102.88.255.255,Lagos, Lagos, Nigeria
+        41.58.0.0,41.58.127.255,Abuja, FCT, Nigeria
+        2c0f:f5c0::,2c0f:f5c0:ffff:ffff:ffff:ffff:ffff:ffff,Ibadan, Oyo, Nigeria
+        """);
+
+    IpLocationDatabase database = new IpLocationDatabase(dataset.toString());
+
+    assertEquals(3, database.size());
+    assertEquals(Optional.of("Lagos, Lagos, Nigeria"), database.lookup("102.88.14.3"));
+    assertEquals(Optional.of("Abuja, FCT, Nigeria"), database.lookup("41.58.0.0"));
+    assertEquals(Optional.of("Abuja, FCT, Nigeria"), database.lookup("41.58.127.255"));
+    assertEquals(Optional.of("Ibadan, Oyo, Nigeria"), database.lookup("2c0f:f5c0:1::42"));
+    assertEquals(Optional.of("Lagos, Lagos, Nigeria"), database.lookup("::ffff:102.88.1.1"));
+  }
+
+  @Test
+  public void whenAddressOutsideRanges_thenEmpty() throws Exception {
+    Path dataset = _writeDataset("41.58.0.0,41.58.127.255,Abuja, FCT, Nigeria\n");
+
+    IpLocationDatabase database = new IpLocationDatabase(dataset.toString());
+
+    assertTrue(database.lookup("41.58.128.0").isEmpty());
+    assertTrue(database.lookup("10.0.0.1").isEmpty());
+    assertTrue(database.lookup("2001:db8::1").isEmpty());
+    assertTrue(database.lookup("not-an-ip").isEmpty());
+  }
+
+  @Test
+  public void whenFileChanges_thenTableIsReloaded() throws Exception {
+    Path dataset = _writeDataset("41.58.0.0,41.58.127.255,Abuja, FCT, Nigeria\n");
+    IpLocationDatabase database = new IpLocationDatabase(dataset.toString());
+
+    Files.writeString(dataset, "41.58.0.0,41.58.127.255,Kano, Kano, Nigeria\n");
+    Files.setLastModifiedTime(dataset, FileTime.from(Instant.now().plusSeconds(5)));
+    database.reloadIfChanged();
+
+    assertEquals(Optional.of("Kano, Kano, Nigeria"), database.lookup("41.58.1.1"));
+  }
+
+  @Test
+  public void whenNoDatabaseConfigured_thenDisabled() {
+    IpLocationDatabase database = new IpLocationDatabase("");
+
+    assertFalse(database.isEnabled());
+    assertTrue(database.lookup("41.58.1.1").isEmpty());
+  }
+}
@@ -0,0 +1,34 @@
+package com.johnson.blog.postTest;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.UUID;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import com.jayway.jsonpath.JsonPath;
+import com.johnson.blog.authTest.BaseAuthControllerTest;
+import com.johnson.utilities.dtos.postDtos.CreatePostDto;
+
+public abstract class BasePostControllerTest extends BaseAuthControllerTest {
+  protected final String POSTS_URL = "/api/v1/posts";
+
+  /// creates a post as the holder of accessToken and returns its id
+  protected String createPost(String accessToken, String title, String genre) throws Exception {
+    CreatePostDto createPostDto = new CreatePostDto(title, "Content of " + title, genre, null);
+    String body = mockMvc.perform(MockMvcRequestBuilders.post(POSTS_URL)
+        .header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken)
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(objectMapper.writeValueAsString(createPostDto)))
+        .andExpect(status().isCreated())
+        .andReturn().getResponse().getContentAsString();
+    return JsonPath.read(body, "$.data.id");
+  }
+
+  /// genres are shared by every test class on the context, so each test takes its own
+  protected String uniqueGenre() {
+    return "genre-" + UUID.randomUUID();
+  }
+}
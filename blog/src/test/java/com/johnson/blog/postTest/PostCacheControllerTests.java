@@ -0,0 +1,123 @@
+package com.johnson.blog.postTest;
+
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import com.johnson.utilities.dtos.postDtos.UpdatePostDto;
+
+public class PostCacheControllerTests extends BasePostControllerTest {
+
+  @Test
+  public void whenIfNoneMatchHoldsCurrentETag_thenReturns304() throws Exception {
+    String token = accessToken(registerAndLogin());
+    String postId = createPost(token, "Unchanged", uniqueGenre());
+
+    String etag = _getPost(token, postId, null)
+        .andExpect(status().isOk())
+        .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"))
+        .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    assertNotNull(etag);
+
+    _getPost(token, postId, etag)
+        .andExpect(status().isNotModified())
+        .andExpect(header().string(HttpHeaders.ETAG, etag))
+        .andExpect(content().string(""));
+
+    // one of a list, and the strong form of the weak tag, match as well
+    _getPost(token, postId, "W/\"other\", " + etag.substring(2))
+        .andExpect(status().isNotModified());
+  }
+
+  @Test
+  public void whenPostUpdated_thenOldETagGetsFullResponse() throws Exception {
+    String token = accessToken(registerAndLogin());
+    String postId = createPost(token, "Before update", uniqueGenre());
+    String etag = _getPost(token, postId, null)
+        .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+    UpdatePostDto updatePostDto = new UpdatePostDto("After update", null, null, null);
+    mockMvc.perform(MockMvcRequestBuilders.patch(POSTS_URL + "/" + postId)
+        .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(objectMapper.writeValueAsString(updatePostDto)))
+        .andExpect(status().isOk());
+
+    String updatedEtag = _getPost(token, postId, etag)
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.title").value("After update"))
+        .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    assertNotEquals(etag, updatedEtag);
+  }
+
+  @Test
+  public void whenPostDeleted_thenCachedPostReturns404() throws Exception {
+    String token = accessToken(registerAndLogin());
+    String postId = createPost(token, "Soon deleted", uniqueGenre());
+    String etag = _getPost(token, postId, null)
+        .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+    mockMvc.perform(MockMvcRequestBuilders.delete(POSTS_URL + "/" + postId)
+        .header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+        .andExpect(status().isOk());
+
+    _getPost(token, postId, etag)
+        .andExpect(status().isNotFound())
+        .andExpect(jsonPath("$.message").value("Post not found"));
+  }
+
+  @Test
+  public void whenFeedChanges_thenOldETagGetsFullPage() throws Exception {
+    String token = accessToken(registerAndLogin());
+    String genre = uniqueGenre();
+    String firstId = createPost(token, "First in genre", genre);
+
+    String etag = _getGenreFeed(token, genre, null)
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.length()").value(1))
+        .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    _getGenreFeed(token, genre, etag)
+        .andExpect(status().isNotModified());
+
+    // a create invalidates the genre feed
+    createPost(token, "Second in genre", genre);
+    String createdEtag = _getGenreFeed(token, genre, etag)
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.length()").value(2))
+        .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+    // and so does a delete
+    mockMvc.perform(MockMvcRequestBuilders.delete(POSTS_URL + "/" + firstId)
+        .header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+        .andExpect(status().isOk());
+    _getGenreFeed(token, genre, createdEtag)
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.length()").value(1))
+        .andExpect(jsonPath("$.data[0].title").value("Second in genre"));
+  }
+
+  private ResultActions _getPost(String token, String postId, String ifNoneMatch) throws Exception {
+    MockHttpServletRequestBuilder request = MockMvcRequestBuilders.get(POSTS_URL + "/" + postId)
+        .header(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+    if (ifNoneMatch != null) {
+      request.header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+    }
+    return mockMvc.perform(request);
+  }
+
+  private ResultActions _getGenreFeed(String token, String genre, String ifNoneMatch) throws Exception {
+    MockHttpServletRequestBuilder request = MockMvcRequestBuilders.get(POSTS_URL + "/genres/" + genre)
+        .header(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+    if (ifNoneMatch != null) {
+      request.header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+    }
+    return mockMvc.perform(request);
+  }
+}
@@ -0,0 +1,124 @@
+package com.johnson.blog.postTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import com.jayway.jsonpath.JsonPath;
+import com.johnson.utilities.PageCursor;
+
+public class PostFeedControllerTests extends BasePostControllerTest {
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Test
+  public void whenPostsShareCreatedAt_thenFeedPagesNeitherSkipNorRepeat() throws Exception {
+    MvcResult login = registerAndLogin();
+    String token = accessToken(login);
+    String authorId = userId(login);
+    List<String> created = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      created.add(createPost(token, "Same instant " + i, uniqueGenre()));
+    }
+    // one timestamp for all: only the id breaks the ties
+    jdbcTemplate.update("UPDATE blog_posts SET created_at = ? WHERE user_id = ?",
+        OffsetDateTime.of(2024, 1, 1, 12, 0, 0, 0, ZoneOffset.UTC), authorId);
+
+    List<String> seen = new ArrayList<>();
+    String cursor = null;
+    int pages = 0;
+    do {
+      MvcResult page = mockMvc.perform(MockMvcRequestBuilders.get(POSTS_URL + "/authors/" + authorId)
+          .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+          .param("size", "2")
+          .param("cursor", cursor == null ? "" : cursor))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.meta.size").value(2))
+          .andReturn();
+      String body = page.getResponse().getContentAsString();
+      seen.addAll(JsonPath.<List<String>>read(body, "$.data[*].id"));
+      // nextCursor is left out of the meta on the last page
+      cursor = JsonPath.<Boolean>read(body, "$.meta.hasNext") ? JsonPath.read(body, "$.meta.nextCursor") : null;
+      pages++;
+    } while (cursor != null);
+
+    // newest first, and ties by id descending
+    created.sort(Comparator.reverseOrder());
+    assertEquals(created, seen);
+    assertEquals(3, pages);
+  }
+
+  @Test
+  public void whenCursorIsNotBase64_thenReturns400() throws Exception {
+    MvcResult login = registerAndLogin();
+
+    mockMvc.perform(MockMvcRequestBuilders.get(POSTS_URL + "/authors/" + userId(login))
+        .header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken(login))
+        .param("cursor", "not a cursor!"))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.message").value("Invalid cursor"));
+  }
+
+  @Test
+  public void whenCursorHoldsNoFeedKey_thenReturns400() throws Exception {
+    MvcResult login = registerAndLogin();
+
+    // well-formed encoding around a key that is neither a timestamp nor a uuid
+    mockMvc.perform(MockMvcRequestBuilders.get(POSTS_URL + "/genres/" + uniqueGenre())
+        .header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken(login))
+        .param("cursor", PageCursor.encode("yesterday", "42")))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.message").value("Invalid cursor"));
+
+    // the user listing's single-part cursor is not a feed cursor either
+    mockMvc.perform(MockMvcRequestBuilders.get(POSTS_URL + "/genres/" + uniqueGenre())
+        .header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken(login))
+        .param("cursor", PageCursor.encode(userId(login))))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.message").value("Invalid cursor"));
+  }
+
+  @Test
+  public void whenNonAuthorDeletes_thenReturns403AndPostStays() throws Exception {
+    String authorToken = accessToken(registerAndLogin());
+    String otherToken = accessToken(registerAndLogin());
+    String postId = createPost(authorToken, "Not yours", uniqueGenre());
+
+    mockMvc.perform(MockMvcRequestBuilders.delete(POSTS_URL + "/" + postId)
+        .header(HttpHeaders.AUTHORIZATION, "Bearer " + otherToken))
+        .andExpect(status().isForbidden())
+        .andExpect(jsonPath("$.message").value("You can only delete your own posts"));
+
+    mockMvc.perform(MockMvcRequestBuilders.get(POSTS_URL + "/" + postId)
+        .header(HttpHeaders.AUTHORIZATION, "Bearer " + otherToken))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.id").value(postId));
+  }
+
+  @Test
+  public void whenPostAlreadyDeleted_thenDeleteReturns404() throws Exception {
+    String authorToken = accessToken(registerAndLogin());
+    String postId = createPost(authorToken, "Deleted twice", uniqueGenre());
+
+    mockMvc.perform(MockMvcRequestBuilders.delete(POSTS_URL + "/" + postId)
+        .header(HttpHeaders.AUTHORIZATION, "Bearer " + authorToken))
+        .andExpect(status().isOk());
+
+    mockMvc.perform(MockMvcRequestBuilders.delete(POSTS_URL + "/" + postId)
+        .header(HttpHeaders.AUTHORIZATION, "Bearer " + authorToken))
+        .andExpect(status().isNotFound())
+        .andExpect(jsonPath("$.message").value("Post not found"));
+  }
+}
@@ -0,0 +1,68 @@
+package com.johnson.blog.postTest;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+public class PostLikeControllerTests extends BasePostControllerTest {
+
+  @Test
+  public void whenLikedTwice_thenCountedOnce() throws Exception {
+    String authorToken = accessToken(registerAndLogin());
+    String readerToken = accessToken(registerAndLogin());
+    String postId = createPost(authorToken, "Liked twice", uniqueGenre());
+
+    mockMvc.perform(MockMvcRequestBuilders.post(POSTS_URL + "/" + postId + "/likes")
+        .header(HttpHeaders.AUTHORIZATION, "Bearer " + readerToken))
+        .andExpect(status().isCreated())
+        .andExpect(jsonPath("$.message").value("Post liked successfully"));
+
+    mockMvc.perform(MockMvcRequestBuilders.post(POSTS_URL + "/" + postId + "/likes")
+        .header(HttpHeaders.AUTHORIZATION, "Bearer " + readerToken))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.message").value("Post already liked"));
+
+    mockMvc.perform(MockMvcRequestBuilders.get(POSTS_URL + "/" + postId)
+        .header(HttpHeaders.AUTHORIZATION, "Bearer " + readerToken))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.likeCount").value(1));
+  }
+
+  @Test
+  public void whenUnlikedThenLikedAgain_thenCountedOnce() throws Exception {
+    String authorToken = accessToken(registerAndLogin());
+    String readerToken = accessToken(registerAndLogin());
+    String postId = createPost(authorToken, "Liked again", uniqueGenre());
+
+    mockMvc.perform(MockMvcRequestBuilders.post(POSTS_URL + "/" + postId + "/likes")
+        .header(HttpHeaders.AUTHORIZATION, "Bearer " + readerToken))
+        .andExpect(status().isCreated());
+    mockMvc.perform(MockMvcRequestBuilders.delete(POSTS_URL + "/" + postId + "/likes")
+        .header(HttpHeaders.AUTHORIZATION, "Bearer " + readerToken))
+        .andExpect(status().isOk());
+    mockMvc.perform(MockMvcRequestBuilders.delete(POSTS_URL + "/" + postId + "/likes")
+        .header(HttpHeaders.AUTHORIZATION, "Bearer " + readerToken))
+        .andExpect(status().isNotFound())
+        .andExpect(jsonPath("$.message").value("Like not found"));
+    mockMvc.perform(MockMvcRequestBuilders.post(POSTS_URL + "/" + postId + "/likes")
+        .header(HttpHeaders.AUTHORIZATION, "Bearer " + readerToken))
+        .andExpect(status().isCreated());
+
+    mockMvc.perform(MockMvcRequestBuilders.get(POSTS_URL + "/" + postId)
+        .header(HttpHeaders.AUTHORIZATION, "Bearer " + readerToken))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.likeCount").value(1));
+  }
+
+  @Test
+  public void whenPostMissing_thenLikeReturns404() throws Exception {
+    String readerToken = accessToken(registerAndLogin());
+
+    mockMvc.perform(MockMvcRequestBuilders.post(POSTS_URL + "/0190a3c2-7b1e-7000-8000-000000000000/likes")
+        .header(HttpHeaders.AUTHORIZATION, "Bearer " + readerToken))
+        .andExpect(status().isNotFound())
+        .andExpect(jsonPath("$.message").value("Post not found"));
+  }
+}
@@ -0,0 +1,71 @@
+package com.johnson.blog.redisTest;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.johnson.blog.filters.SessionValueRedisSerializer;
+
+public class SessionValueRedisSerializerTests {
+  private final Jackson2JsonRedisSerializer<Object> jsonSerializer = new Jackson2JsonRedisSerializer<>(
+      new ObjectMapper(), Object.class);
+
+  private final SessionValueRedisSerializer compactSerializer = new SessionValueRedisSerializer(jsonSerializer, true);
+
+  private final SessionValueRedisSerializer jsonModeSerializer = new SessionValueRedisSerializer(jsonSerializer,
+      false);
+
+  @Test
+  public void whenCompactMode_thenValuesRoundTrip() {
+    Instant createdAt = Instant.parse("2025-05-01T10:15:30.123456789Z");
+
+    assertEquals("0196b1c2-7a1e-7cc3-a1f5-3b0e2d9c4f10",
+        compactSerializer.deserialize(compactSerializer.serialize("0196b1c2-7a1e-7cc3-a1f5-3b0e2d9c4f10")));
+    assertEquals("Lagos, Lagos, Nigeria",
+        compactSerializer.deserialize(compactSerializer.serialize("Lagos, Lagos, Nigeria")));
+    assertEquals(Boolean.FALSE, compactSerializer.deserialize(compactSerializer.serialize(false)));
+    assertEquals(Boolean.TRUE, compactSerializer.deserialize(compactSerializer.serialize(true)));
+    assertEquals(createdAt, compactSerializer.deserialize(compactSerializer.serialize(createdAt)));
+    assertEquals(42L, compactSerializer.deserialize(compactSerializer.serialize(42L)));
+  }
+
+  @Test
+  public void whenCompactMode_thenEncodingIsSmallerThanJson() {
+    assertEquals(1, compactSerializer.serialize(false).length);
+    assertEquals(13, compactSerializer.serialize(Instant.now()).length);
+    assertArrayEquals("\u0001127.0.0.1".getBytes(StandardCharsets.UTF_8), compactSerializer.serialize("127.0.0.1"));
+    assertTrue(compactSerializer.serialize("127.0.0.1").length < jsonSerializer.serialize("127.0.0.1").length);
+  }
+
+  @Test
+  public void whenLegacyJsonEntry_thenCompactModeStillReadsIt() {
+    byte[] legacyString = jsonSerializer.serialize("0196b1c2-7a1e-7cc3-a1f5-3b0e2d9c4f10");
+    byte[] legacyBoolean = jsonSerializer.serialize(false);
+
+    assertEquals("0196b1c2-7a1e-7cc3-a1f5-3b0e2d9c4f10", compactSerializer.deserialize(legacyString));
+    assertEquals(Boolean.FALSE, compactSerializer.deserialize(legacyBoolean));
+  }
+
+  @Test
+  public void whenJsonMode_thenCompactEntriesAreStillReadable() {
+    byte[] compactEntry = compactSerializer.serialize("127.0.0.1");
+
+    assertArrayEquals(jsonSerializer.serialize("127.0.0.1"), jsonModeSerializer.serialize("127.0.0.1"));
+    assertEquals("127.0.0.1", jsonModeSerializer.deserialize(compactEntry));
+  }
+
+  @Test
+  public void whenNullOrEmpty_thenNull() {
+    assertNull(compactSerializer.deserialize(null));
+    assertNull(compactSerializer.deserialize(new byte[0]));
+    assertEquals(0, compactSerializer.serialize(null).length);
+  }
+}
@@ -0,0 +1,80 @@
+package com.johnson.blog.searchTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.johnson.blog.search.InvertedIndex;
+import com.johnson.blog.search.SearchHit;
+
+public class InvertedIndexTests {
+
+  private static List<String> _ids(List<SearchHit> hits) {
+    return hits.stream().map(SearchHit::postId).toList();
+  }
+
+  @Test
+  public void whenTermInTitle_thenRanksAboveContentOnly() {
+    InvertedIndex index = new InvertedIndex(3, 0.2);
+    index.index("content", "Weekend notes", "a short note about spring and gardening", 1);
+    index.index("title", "Spring boot basics", "a short note about configuration", 1);
+    index.index("other", "Pasta", "boil the water and add salt", 1);
+
+    assertEquals(List.of("title", "content"), _ids(index.search("Spring", 10)));
+    assertTrue(index.search("the and", 10).isEmpty());
+  }
+
+  @Test
+  public void whenUpdatedOrRemoved_thenOnlyLatestLiveVersionMatches() {
+    InvertedIndex index = new InvertedIndex(3, 0.2);
+    index.index("p1", "Kotlin coroutines", "structured concurrency", 1);
+    index.index("p1", "Java threads", "virtual threads", 2);
+    // an older version arriving late is ignored
+    index.index("p1", "Kotlin coroutines", "structured concurrency", 1);
+
+    assertTrue(index.search("kotlin", 10).isEmpty());
+    assertEquals(List.of("p1"), _ids(index.search("threads", 10)));
+
+    index.remove("p1");
+    assertTrue(index.search("threads", 10).isEmpty());
+    assertEquals(0, index.size());
+  }
+
+  @Test
+  public void whenTopK_thenSameAsScoringEveryMatch() {
+    // low compact ratio so the removals below also exercise compaction
+    InvertedIndex index = new InvertedIndex(3, 0.05);
+    Random random = new Random(7);
+    for (int post = 0; post < 20_000; post++) {
+      index.index("p" + post, _text(random, 4), _text(random, 5 + random.nextInt(60)), 1);
+    }
+    for (int i = 0; i < 3_000; i++) {
+      index.remove("p" + random.nextInt(20_000));
+    }
+
+    for (int query = 0; query < 200; query++) {
+      String text = _text(random, 1 + random.nextInt(3));
+      List<SearchHit> all = index.search(text, Integer.MAX_VALUE - 1);
+      List<SearchHit> top = index.search(text, 10);
+
+      assertEquals(Math.min(10, all.size()), top.size());
+      for (int i = 0; i < top.size(); i++) {
+        assertEquals(all.get(i).score(), top.get(i).score(), 1e-9, text);
+      }
+    }
+  }
+
+  /// words from a skewed vocabulary, so some terms are in most posts
+  private static String _text(Random random, int words) {
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < words; i++) {
+      int word = (int) Math.min(299, Math.abs(random.nextGaussian() * 40));
+      text.append("w").append((char) ('a' + word % 26)).append((char) ('a' + word / 26)).append(' ');
+    }
+    return text.toString();
+  }
+}
@@ -0,0 +1,94 @@
+package com.johnson.blog.sessionTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import com.johnson.blog.authTest.BaseAuthControllerTest;
+import com.johnson.blog.service.RedisSessionService;
+import com.johnson.blog.service.SessionOutboxRelay;
+import com.johnson.database.repository.SessionOutboxRepository;
+
+/// partial session updates against the test Redis: they run as one script
+/// that must never bring back a session hash that is gone
+public class SessionOutboxRedisTests extends BaseAuthControllerTest {
+  @Autowired
+  private RedisSessionService redisSessionService;
+
+  @Autowired
+  private SessionOutboxRelay sessionOutboxRelay;
+
+  @Autowired
+  private SessionOutboxRepository sessionOutboxRepository;
+
+  @Autowired
+  private RedisTemplate<String, Object> redisTemplate;
+
+  /// relays until the user's events are settled; a wake-up relay may be
+  /// applying them concurrently
+  private void _relay(String userId) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 10_000;
+    do {
+      sessionOutboxRelay.relay();
+      if (sessionOutboxRepository.findAll().stream().noneMatch(event -> event.getUserId().equals(userId))) {
+        return;
+      }
+      Thread.sleep(50);
+    } while (System.currentTimeMillis() < deadline);
+    throw new AssertionError("session outbox events of " + userId + " were not relayed");
+  }
+
+  @Test
+  public void whenSessionAbsent_thenLocationUpdateDoesNotRecreateIt() throws Exception {
+    String userId = UUID.randomUUID().toString();
+    String deviceId = UUID.randomUUID().toString();
+    String key = "session:" + userId + ":" + deviceId;
+
+    redisSessionService.updateLocation(userId, deviceId, "Lagos, Nigeria");
+    _relay(userId);
+
+    assertFalse(Boolean.TRUE.equals(redisTemplate.hasKey(key)));
+  }
+
+  @Test
+  public void whenSessionPresent_thenLocationUpdateKeepsItsTtl() throws Exception {
+    String userId = UUID.randomUUID().toString();
+    String deviceId = UUID.randomUUID().toString();
+    String key = "session:" + userId + ":" + deviceId;
+    redisTemplate.opsForHash().putAll(key, Map.of("jti", "jti-1", "isLoggedOut", false));
+    redisTemplate.expire(key, 1, TimeUnit.HOURS);
+
+    redisSessionService.updateLocation(userId, deviceId, "Lagos, Nigeria");
+    _relay(userId);
+
+    assertEquals("Lagos, Nigeria", redisTemplate.opsForHash().get(key, "location"));
+    assertEquals("jti-1", redisTemplate.opsForHash().get(key, "jti"));
+    Long ttl = redisTemplate.getExpire(key, TimeUnit.SECONDS);
+    assertTrue(ttl != null && ttl > 0 && ttl <= 3600);
+  }
+
+  @Test
+  public void whenSessionPresent_thenJtiUpdateMovesItsExpiry() throws Exception {
+    String userId = UUID.randomUUID().toString();
+    String deviceId = UUID.randomUUID().toString();
+    String key = "session:" + userId + ":" + deviceId;
+    redisTemplate.opsForHash().putAll(key, Map.of("jti", "jti-1", "isLoggedOut", false));
+    redisTemplate.expire(key, 60, TimeUnit.SECONDS);
+
+    redisSessionService.updateJti(userId, deviceId, "jti-2");
+    _relay(userId);
+
+    assertEquals("jti-2", redisTemplate.opsForHash().get(key, "jti"));
+    // now expires with the refresh token issued alongside the new jti
+    Long ttl = redisTemplate.getExpire(key, TimeUnit.SECONDS);
+    assertTrue(ttl != null && ttl > 60);
+  }
+}
@@ -0,0 +1,135 @@
+package com.johnson.blog.sessionTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.johnson.blog.service.SessionOutboxRelay;
+import com.johnson.database.model.SessionOutboxModel;
+import com.johnson.database.repository.SessionOutboxRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class SessionOutboxRelayTests {
+  private static final int MAX_ATTEMPTS = 3;
+  private static final long LEASE_MS = 60_000;
+
+  private final SessionOutboxRepository sessionOutboxRepository = mock(SessionOutboxRepository.class);
+  @SuppressWarnings("unchecked")
+  private final RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+  @SuppressWarnings("unchecked")
+  private final SetOperations<String, Object> setOperations = mock(SetOperations.class);
+  private final SessionOutboxRelay relay;
+
+  public SessionOutboxRelayTests() {
+    PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+    when(redisTemplate.opsForSet()).thenReturn(setOperations);
+    relay = new SessionOutboxRelay(sessionOutboxRepository, redisTemplate, new ObjectMapper(),
+        transactionManager, new SimpleMeterRegistry(), 200, MAX_ATTEMPTS, LEASE_MS);
+  }
+
+  private static SessionOutboxModel _event(String id, SessionOutboxRelay.Operation operation, String userId,
+      String deviceId, int attempts) {
+    SessionOutboxModel event = new SessionOutboxModel();
+    event.setId(id);
+    event.setOperation(operation.name());
+    event.setUserId(userId);
+    event.setDeviceId(deviceId);
+    event.setAttempts(attempts);
+    event.setNextAttemptAt(OffsetDateTime.now());
+    return event;
+  }
+
+  private void _due(SessionOutboxModel... events) {
+    when(sessionOutboxRepository.findDueForRelay(any(), any())).thenReturn(List.of(events));
+  }
+
+  @Test
+  public void whenClaimed_thenEventsAreLeasedBeforeBeingApplied() {
+    _due(_event("e1", SessionOutboxRelay.Operation.DELETE, "u1", "d1", 0),
+        _event("e2", SessionOutboxRelay.Operation.DELETE, "u2", "d2", 0));
+    OffsetDateTime before = OffsetDateTime.now();
+
+    relay.relay();
+
+    @SuppressWarnings("unchecked")
+    ArgumentCaptor<Collection<String>> ids = ArgumentCaptor.forClass(Collection.class);
+    ArgumentCaptor<OffsetDateTime> until = ArgumentCaptor.forClass(OffsetDateTime.class);
+    verify(sessionOutboxRepository).postpone(ids.capture(), until.capture());
+    assertEquals(List.of("e1", "e2"), List.copyOf(ids.getValue()));
+    assertFalse(until.getValue().isBefore(before.plusNanos(LEASE_MS * 1_000_000L)));
+    // applied, then settled
+    verify(redisTemplate, times(2)).execute(any(SessionCallback.class));
+    verify(sessionOutboxRepository).deleteAllByIdInBatch(List.of("e1", "e2"));
+  }
+
+  @Test
+  public void whenEventFails_thenLaterEventsOfThatUserWait() {
+    _due(_event("e1", SessionOutboxRelay.Operation.DELETE, "u1", "d1", 0),
+        _event("e2", SessionOutboxRelay.Operation.DELETE, "u1", "d1", 0),
+        _event("e3", SessionOutboxRelay.Operation.DELETE_ALL, "u2", null, 0));
+    when(redisTemplate.execute(any(SessionCallback.class)))
+        .thenThrow(new RedisConnectionFailureException("connection reset"));
+
+    relay.relay();
+
+    // e1 retried with backoff, e2 handed back untouched behind it, u2 unaffected
+    ArgumentCaptor<OffsetDateTime> nextAttemptAt = ArgumentCaptor.forClass(OffsetDateTime.class);
+    verify(sessionOutboxRepository).reschedule(eq("e1"), eq(1), nextAttemptAt.capture());
+    assertTrue(nextAttemptAt.getValue().isAfter(OffsetDateTime.now()));
+    verify(redisTemplate, times(1)).execute(any(SessionCallback.class));
+    verify(sessionOutboxRepository).postpone(eq(List.of("e2")), any());
+    verify(redisTemplate).delete(List.of("sessions:u2"));
+    verify(sessionOutboxRepository).deleteAllByIdInBatch(List.of("e3"));
+  }
+
+  @Test
+  public void whenMaxAttemptsReached_thenSessionIsEvictedInstead() {
+    _due(_event("e1", SessionOutboxRelay.Operation.DELETE, "u1", "d1", MAX_ATTEMPTS - 1));
+    when(redisTemplate.execute(any(SessionCallback.class)))
+        .thenThrow(new RedisConnectionFailureException("connection reset"));
+
+    relay.relay();
+
+    verify(redisTemplate).delete("session:u1:d1");
+    verify(sessionOutboxRepository, never()).reschedule(anyString(), anyInt(), any());
+    verify(sessionOutboxRepository).deleteAllByIdInBatch(List.of("e1"));
+  }
+
+  @Test
+  public void whenMaxAttemptsReachedWithoutDevice_thenEventIsNeverDropped() {
+    _due(_event("e1", SessionOutboxRelay.Operation.DELETE_ALL, "u1", null, MAX_ATTEMPTS + 5));
+    when(setOperations.members("sessions:u1")).thenThrow(new RedisConnectionFailureException("connection reset"));
+
+    relay.relay();
+
+    // a DELETE_ALL has no single key to evict: it stays queued
+    verify(sessionOutboxRepository).reschedule(eq("e1"), eq(MAX_ATTEMPTS + 6), any());
+    verify(sessionOutboxRepository, never()).deleteAllByIdInBatch(anyCollection());
+  }
+}
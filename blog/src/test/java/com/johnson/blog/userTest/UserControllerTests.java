@@ -0,0 +1,100 @@
+package com.johnson.blog.userTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import com.jayway.jsonpath.JsonPath;
+import com.johnson.blog.authTest.BaseAuthControllerTest;
+import com.johnson.utilities.PageCursor;
+
+public class UserControllerTests extends BaseAuthControllerTest {
+  protected final String USERS_URL = "/api/v1/users";
+
+  @Test
+  public void whenPagingThroughUsers_thenEveryUserAppearsOnceInIdOrder() throws Exception {
+    List<String> registered = new ArrayList<>();
+    String token = null;
+    for (int i = 0; i < 3; i++) {
+      MvcResult login = registerAndLogin();
+      registered.add(userId(login));
+      token = accessToken(login);
+    }
+
+    // other test classes share the database: walk every page
+    List<String> seen = new ArrayList<>();
+    String cursor = null;
+    do {
+      String body = mockMvc.perform(MockMvcRequestBuilders.get(USERS_URL)
+          .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+          .param("size", "2")
+          .param("cursor", cursor == null ? "" : cursor))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.meta.size").value(2))
+          .andExpect(jsonPath("$.meta.totalItems").doesNotExist())
+          .andReturn().getResponse().getContentAsString();
+      seen.addAll(JsonPath.<List<String>>read(body, "$.data[*].id"));
+      // nextCursor is left out of the meta on the last page
+      cursor = JsonPath.<Boolean>read(body, "$.meta.hasNext") ? JsonPath.read(body, "$.meta.nextCursor") : null;
+    } while (cursor != null);
+
+    assertEquals(seen.size(), new HashSet<>(seen).size());
+    List<String> sorted = new ArrayList<>(seen);
+    sorted.sort(null);
+    assertEquals(sorted, seen);
+    assertTrue(seen.containsAll(registered));
+  }
+
+  @Test
+  public void whenCursorIsInvalid_thenReturns400() throws Exception {
+    String token = accessToken(registerAndLogin());
+
+    mockMvc.perform(MockMvcRequestBuilders.get(USERS_URL)
+        .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+        .param("cursor", "not a cursor!"))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.message").value("Invalid cursor"));
+
+    // a post feed cursor has two parts, the user listing's has one
+    mockMvc.perform(MockMvcRequestBuilders.get(USERS_URL)
+        .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+        .param("cursor", PageCursor.encode("2024-01-01T12:00Z", "42")))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.message").value("Invalid cursor"));
+  }
+
+  @Test
+  public void whenCountRequested_thenMetaHasTotal() throws Exception {
+    String token = accessToken(registerAndLogin());
+
+    mockMvc.perform(MockMvcRequestBuilders.get(USERS_URL)
+        .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+        .param("count", "exact"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.meta.totalItems").isNumber())
+        .andExpect(jsonPath("$.meta.totalEstimated").value(false));
+
+    // no planner statistics on H2: the estimate falls back to an exact count
+    mockMvc.perform(MockMvcRequestBuilders.get(USERS_URL)
+        .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+        .param("count", "estimate"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.meta.totalItems").isNumber())
+        .andExpect(jsonPath("$.meta.totalEstimated").value(false));
+
+    mockMvc.perform(MockMvcRequestBuilders.get(USERS_URL)
+        .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+        .param("count", "all"))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.message").value("count must be one of none, estimate, exact"));
+  }
+}
@@ -0,0 +1,128 @@
+-- Lookup cost of the auth-path queries as blog_user_sessions grows.
+--
+-- Run against a scratch PostgreSQL database (never production), once per
+-- table size, e.g.:
+--
+--   for rows in 100000 1000000 5000000; do
+--     psql "$BENCH_DB_URL" -v rows=$rows -v live_ratio=0.2 -f database/bench/session_lookup_bench.sql
+--   done
+--
+-- rows        sessions to generate (one user per 5 sessions)
+-- live_ratio  share of sessions that are not logged out
+--
+-- For each query it prints the plan with buffer counts and the average of
+-- 1000 executions; compare "shared hit/read" and "Heap Fetches" across sizes.
+-- Set the indexes variable to off (-v indexes=off) to measure the same
+-- queries with only the primary key and unique constraints.
+
+\set ON_ERROR_STOP on
+\if :{?indexes}
+\else
+  \set indexes on
+\endif
+\timing off
+
+DROP SCHEMA IF EXISTS session_bench CASCADE;
+CREATE SCHEMA session_bench;
+SET search_path TO session_bench;
+
+CREATE TABLE blog_users (
+  id VARCHAR(255) PRIMARY KEY,
+  created_at TIMESTAMP WITH TIME ZONE NOT NULL,
+  updated_at TIMESTAMP WITH TIME ZONE NOT NULL,
+  firstname VARCHAR(100) NOT NULL,
+  password VARCHAR(255) NOT NULL,
+  email VARCHAR(100) NOT NULL UNIQUE,
+  is_deleted BOOLEAN NOT NULL DEFAULT FALSE,
+  is_deactivated BOOLEAN NOT NULL DEFAULT FALSE
+);
+
+CREATE TABLE blog_user_sessions (
+  id VARCHAR(255) PRIMARY KEY,
+  created_at TIMESTAMP WITH TIME ZONE NOT NULL,
+  updated_at TIMESTAMP WITH TIME ZONE NOT NULL,
+  device_id VARCHAR(100) NOT NULL UNIQUE,
+  jti VARCHAR(60) NOT NULL,
+  previous_jti VARCHAR(60),
+  ip_address VARCHAR(30) NOT NULL,
+  location VARCHAR(255),
+  is_logged_out BOOLEAN NOT NULL,
+  user_id VARCHAR(255) NOT NULL REFERENCES blog_users (id)
+);
+
+INSERT INTO blog_users (id, created_at, updated_at, firstname, password, email)
+SELECT 'u-' || lpad(g::text, 10, '0'), now(), now(), 'user' || g, repeat('x', 60), 'user' || g || '@bench.test'
+FROM generate_series(1, greatest(:rows / 5, 1)) AS g;
+
+INSERT INTO blog_user_sessions (id, created_at, updated_at, device_id, jti, ip_address, is_logged_out, user_id)
+SELECT 's-' || lpad(g::text, 10, '0'),
+       now() - (g % 30) * interval '1 day',
+       now() - (g % 30) * interval '1 day',
+       'device-' || g,
+       md5(g::text),
+       '10.0.' || (g % 255) || '.' || (g % 253),
+       random() >= :live_ratio,
+       'u-' || lpad((1 + g % greatest(:rows / 5, 1))::text, 10, '0')
+FROM generate_series(1, :rows) AS g;
+
+\if :indexes
+CREATE INDEX ix_blog_user_sessions_live_device
+  ON blog_user_sessions (device_id) INCLUDE (user_id, jti) WHERE is_logged_out = FALSE;
+CREATE INDEX ix_blog_user_sessions_user_id ON blog_user_sessions (user_id);
+CREATE INDEX ix_blog_user_sessions_live_updated_at
+  ON blog_user_sessions (updated_at) WHERE is_logged_out = FALSE;
+CREATE INDEX ix_blog_users_email_principal
+  ON blog_users (email) INCLUDE (id, firstname, is_deleted, is_deactivated, created_at, updated_at);
+\endif
+
+VACUUM ANALYZE blog_users;
+VACUUM ANALYZE blog_user_sessions;
+
+SELECT :rows AS rows, :'indexes' AS indexes,
+       pg_size_pretty(pg_table_size('blog_user_sessions')) AS sessions_heap,
+       pg_size_pretty(pg_indexes_size('blog_user_sessions')) AS sessions_indexes;
+
+-- a live session to look up (the same one every run of a given size)
+SELECT device_id AS device, user_id AS owner, jti AS token_jti
+FROM blog_user_sessions WHERE is_logged_out = FALSE ORDER BY id LIMIT 1 \gset
+SELECT email AS owner_email FROM blog_users WHERE id = :'owner' \gset
+
+\echo '--- revocation check (JwtService.isTokenRevoked fallback)'
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT EXISTS (SELECT 1 FROM blog_user_sessions
+  WHERE device_id = :'device' AND user_id = :'owner' AND jti = :'token_jti' AND is_logged_out = FALSE);
+
+\echo '--- principal by email (CustomUserDetailsService.loadPrincipal miss)'
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT id, email, firstname, is_deleted, is_deactivated, created_at, updated_at
+FROM blog_users WHERE email = :'owner_email';
+
+\echo '--- logout of all devices'
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT id FROM blog_user_sessions WHERE user_id = :'owner' AND is_logged_out = FALSE;
+
+\echo '--- expiry sweep batch'
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT id FROM blog_user_sessions
+WHERE id IN (SELECT id FROM blog_user_sessions
+  WHERE is_logged_out = FALSE AND updated_at < now() - interval '7 days' ORDER BY id LIMIT 500);
+
+\echo '--- average of up to 1000 revocation checks'
+DO $$
+DECLARE
+  started TIMESTAMP WITH TIME ZONE := clock_timestamp();
+  found BOOLEAN;
+  probes INTEGER := 0;
+  probe RECORD;
+BEGIN
+  FOR probe IN SELECT device_id, user_id, jti FROM blog_user_sessions TABLESAMPLE SYSTEM (1) LIMIT 1000 LOOP
+    SELECT EXISTS (SELECT 1 FROM blog_user_sessions
+      WHERE device_id = probe.device_id AND user_id = probe.user_id AND jti = probe.jti AND is_logged_out = FALSE)
+    INTO found;
+    probes := probes + 1;
+  END LOOP;
+  RAISE NOTICE 'avg % ms over % probes',
+    round((extract(epoch FROM clock_timestamp() - started) * 1000 / greatest(probes, 1))::numeric, 4), probes;
+END $$;
+
+DROP SCHEMA session_bench CASCADE;
@@ -0,0 +1,24 @@
+package com.johnson.database.converter;
+
+import java.util.UUID;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/// Ids stay canonical UUID strings in Java (API, JWT claims, Redis keys) but are
+/// stored as UUIDs. How a UUID is stored is decided by
+/// hibernate.type.preferred_uuid_jdbc_type: native uuid on PostgreSQL, the
+/// 16-byte UUID type on H2, or CHAR to keep textual storage.
+@Converter
+public class UuidStringConverter implements AttributeConverter<String, UUID> {
+
+  @Override
+  public UUID convertToDatabaseColumn(String attribute) {
+    return attribute == null ? null : UUID.fromString(attribute);
+  }
+
+  @Override
+  public String convertToEntityAttribute(UUID dbData) {
+    return dbData == null ? null : dbData.toString();
+  }
+}
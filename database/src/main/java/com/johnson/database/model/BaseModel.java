@@ -12,6 +12,7 @@ import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.SourceType;
 import org.hibernate.annotations.UpdateTimestamp;
 
+import com.johnson.database.converter.UuidStringConverter;
 import com.johnson.utilities.UUIDGenerator;
 
 @MappedSuperclass
@@ -22,7 +23,8 @@ import com.johnson.utilities.UUIDGenerator;
 public abstract class BaseModel {
 
   @Id
-  @Column(unique = true, nullable = false)
+  @Column(nullable = false)
+  @Convert(converter = UuidStringConverter.class)
   private String id = UUIDGenerator.generateUUIDv7();
 
   @CreationTimestamp(source = SourceType.DB)
@@ -0,0 +1,36 @@
+package com.johnson.database.model;
+
+import com.johnson.database.converter.UuidStringConverter;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/// view and like totals of a post, one row per post created with it. Kept
+/// out of blog_posts so the frequent counter writes neither rewrite the wide
+/// post row (and its generated search_vector) nor bump its updated_at.
+/// Written only by PostCounterService's batched flush.
+@Entity
+@Table(name = "blog_post_counters")
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class PostCounterModel {
+  @Id
+  @Column(name = "post_id", nullable = false)
+  @Convert(converter = UuidStringConverter.class)
+  private String postId;
+
+  @Column(name = "view_count", nullable = false)
+  private long viewCount;
+
+  @Column(name = "like_count", nullable = false)
+  private long likeCount;
+}
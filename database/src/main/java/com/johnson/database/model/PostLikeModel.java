@@ -0,0 +1,32 @@
+package com.johnson.database.model;
+
+import com.johnson.database.converter.UuidStringConverter;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/// one like of a post by a user; the unique constraint keeps likes idempotent
+@Entity
+@Table(name = "blog_post_likes", uniqueConstraints = {
+    @UniqueConstraint(columnNames = { "post_id", "user_id" }, name = "uq_blog_post_likes_post_id_user_id")
+})
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class PostLikeModel extends BaseModel {
+  @Column(name = "post_id", nullable = false)
+  @Convert(converter = UuidStringConverter.class)
+  private String postId;
+
+  @Column(name = "user_id", nullable = false)
+  @Convert(converter = UuidStringConverter.class)
+  private String userId;
+}
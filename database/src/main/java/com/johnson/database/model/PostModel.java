@@ -2,6 +2,8 @@ package com.johnson.database.model;
 
 import java.time.LocalDate;
 
+import com.johnson.database.converter.UuidStringConverter;
+
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -14,7 +16,6 @@ import lombok.Setter;
 @AllArgsConstructor
 @NoArgsConstructor
 @Table(name = "blog_posts", uniqueConstraints = {
-    @UniqueConstraint(columnNames = { "id" }, name = "uq_blog_posts_id"),
     @UniqueConstraint(columnNames = { "title", "user_id" }, name = "composite_uq_blog_posts_title_user_id")
 })
 public class PostModel extends BaseModel {
@@ -42,7 +43,14 @@ public class PostModel extends BaseModel {
   @Column(name = "genre", nullable = false)
   private String genre;
 
-  @ManyToOne(targetEntity = UserModel.class, cascade = CascadeType.REMOVE)
+  /// lazy: feeds and reads go through PostSummary/PostDetail projections and
+  /// only need the author's id (bloggerId), never the user row
+  @ManyToOne(targetEntity = UserModel.class, fetch = FetchType.LAZY)
   @JoinColumn(name = "user_id", nullable = false)
   private UserModel blogger;
+
+  /// read-only view of user_id, written through blogger
+  @Column(name = "user_id", nullable = false, insertable = false, updatable = false)
+  @Convert(converter = UuidStringConverter.class)
+  private String bloggerId;
 }
@@ -0,0 +1,50 @@
+package com.johnson.database.model;
+
+import java.time.OffsetDateTime;
+
+import com.johnson.database.converter.UuidStringConverter;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/// pending change to a Redis session, written in the same transaction as the
+/// blog_user_sessions change it mirrors and applied later by the outbox relay.
+/// ids are UUIDv7, so ordering by id is ordering by creation.
+@Entity
+@Table(name = "blog_session_outbox", indexes = {
+    @Index(columnList = "next_attempt_at", name = "ix_blog_session_outbox_next_attempt_at"),
+    @Index(columnList = "user_id", name = "ix_blog_session_outbox_user_id")
+})
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class SessionOutboxModel extends BaseModel {
+  @Column(name = "operation", nullable = false, length = 30)
+  private String operation;
+
+  @Column(name = "user_id", nullable = false)
+  @Convert(converter = UuidStringConverter.class)
+  private String userId;
+
+  /// null for operations on all devices of the user
+  @Column(name = "device_id", nullable = true, length = 100)
+  private String deviceId;
+
+  /// operation arguments as JSON
+  @Column(name = "payload", nullable = true, columnDefinition = "TEXT")
+  private String payload;
+
+  @Column(name = "attempts", nullable = false)
+  private int attempts;
+
+  @Column(name = "next_attempt_at", nullable = false, columnDefinition = "TIMESTAMP WITH TIME ZONE")
+  private OffsetDateTime nextAttemptAt;
+}
@@ -13,8 +13,7 @@ import lombok.Setter;
 
 @Entity
 @Table(name = "blog_users", uniqueConstraints = {
-    @UniqueConstraint(columnNames = { "email" }, name = "uq_blog_users_email"),
-    @UniqueConstraint(columnNames = { "id" }, name = "uq_blog_users_id") })
+    @UniqueConstraint(columnNames = { "email" }, name = "uq_blog_users_email") })
 @Getter
 @Setter
 @NoArgsConstructor
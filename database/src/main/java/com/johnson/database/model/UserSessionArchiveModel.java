@@ -0,0 +1,55 @@
+package com.johnson.database.model;
+
+import java.time.OffsetDateTime;
+
+import com.johnson.database.converter.UuidStringConverter;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/// purged blog_user_sessions rows, kept for auditing when archiving is on.
+/// no relation to blog_users: archived rows must not block user deletion.
+@Entity
+@Table(name = "blog_user_sessions_archive")
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserSessionArchiveModel {
+  @Id
+  @Column(nullable = false)
+  @Convert(converter = UuidStringConverter.class)
+  private String id;
+
+  @Column(name = "user_id", nullable = false)
+  @Convert(converter = UuidStringConverter.class)
+  private String userId;
+
+  @Column(name = "device_id", nullable = false, length = 100)
+  private String deviceId;
+
+  @Column(name = "ip_address", nullable = false, length = 30)
+  private String ipAddress;
+
+  @Column(name = "location", nullable = true)
+  private String location;
+
+  @Column(name = "is_logged_out", nullable = false)
+  private boolean isLoggedOut;
+
+  @Column(name = "created_at", nullable = false, columnDefinition = "TIMESTAMP WITH TIME ZONE")
+  private OffsetDateTime createdAt;
+
+  @Column(name = "updated_at", nullable = false, columnDefinition = "TIMESTAMP WITH TIME ZONE")
+  private OffsetDateTime updatedAt;
+
+  @Column(name = "archived_at", nullable = false, columnDefinition = "TIMESTAMP WITH TIME ZONE")
+  private OffsetDateTime archivedAt;
+}
@@ -1,7 +1,10 @@
 package com.johnson.database.model;
 
 import jakarta.persistence.CascadeType;
+import com.johnson.database.converter.UuidStringConverter;
+
 import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
@@ -14,8 +17,8 @@ import lombok.Setter;
 
 @Entity
 @Table(name = "blog_user_sessions", uniqueConstraints = {
-    @UniqueConstraint(columnNames = { "device_id", "jti" }, name = "composite_uq_blog_user_sessions_device_id_jti"),
-    @UniqueConstraint(columnNames = { "id" }, name = "uq_blog_user_sessions_id")
+    // one session row per device; the login upsert conflicts on it
+    @UniqueConstraint(columnNames = { "device_id" }, name = "uq_blog_user_sessions_device_id")
 })
 @Getter
 @Setter
@@ -28,6 +31,11 @@ public class UserSessionModel extends BaseModel {
   @Column(name = "jti", nullable = false, length = 60)
   private String jti;
 
+  /// jti replaced by the last refresh; presenting it again means the refresh
+  /// token was replayed
+  @Column(name = "previous_jti", nullable = true, length = 60)
+  private String previousJti;
+
   @Column(name = "ip_address", nullable = false, length = 30)
   private String ipAddress;
 
@@ -42,6 +50,7 @@ public class UserSessionModel extends BaseModel {
   }
 
   @Column(name = "user_id", insertable = false, updatable = false)
+  @Convert(converter = UuidStringConverter.class)
   private String userId;
 
   @ManyToOne(targetEntity = UserModel.class, cascade = CascadeType.REMOVE)
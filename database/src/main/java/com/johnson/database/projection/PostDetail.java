@@ -0,0 +1,18 @@
+package com.johnson.database.projection;
+
+import java.time.OffsetDateTime;
+
+/// A single post with its content and persisted counters, read by
+/// PostRepository.findDetailById without loading the author.
+public record PostDetail(
+    String id,
+    String title,
+    String content,
+    String genre,
+    String thumbnail,
+    String bloggerId,
+    OffsetDateTime createdAt,
+    OffsetDateTime updatedAt,
+    long viewCount,
+    long likeCount) {
+}
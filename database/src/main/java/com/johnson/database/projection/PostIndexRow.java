@@ -0,0 +1,13 @@
+package com.johnson.database.projection;
+
+import java.time.OffsetDateTime;
+
+/// What a search index needs of a post, deleted ones included so the index
+/// can drop them; read by PostRepository.findChangedSince.
+public record PostIndexRow(
+    String id,
+    String title,
+    String content,
+    boolean isDeleted,
+    OffsetDateTime updatedAt) {
+}
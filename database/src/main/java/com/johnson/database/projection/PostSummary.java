@@ -0,0 +1,22 @@
+package com.johnson.database.projection;
+
+import java.time.OffsetDateTime;
+
+/*
+ * Feed row of a post, read by a constructor-expression query
+ * (PostRepository.findAuthorFeed / findGenreFeed). Leaves out the content and
+ * the author entity, so a feed page is an index-ordered scan of blog_posts
+ * (plus a primary key lookup of its counters) with no persistence context.
+ * viewCount and likeCount are the persisted totals, without pending deltas.
+ */
+public record PostSummary(
+    String id,
+    String title,
+    String genre,
+    String thumbnail,
+    String bloggerId,
+    OffsetDateTime createdAt,
+    OffsetDateTime updatedAt,
+    long viewCount,
+    long likeCount) {
+}
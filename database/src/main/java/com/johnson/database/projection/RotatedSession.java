@@ -0,0 +1,11 @@
+package com.johnson.database.projection;
+
+/*
+ * Row returned by the refresh-token rotation (UPDATE ... RETURNING); carries
+ * what the refresh needs so it does not read the session again.
+ */
+public interface RotatedSession {
+  String getIpAddress();
+
+  String getLocation();
+}
@@ -0,0 +1,12 @@
+package com.johnson.database.projection;
+
+import java.time.OffsetDateTime;
+
+/// engagement of one post to seed the trending ranking from: count events,
+/// the latest of them at lastAt
+public record TrendingSeedRow(
+    String postId,
+    String genre,
+    long count,
+    OffsetDateTime lastAt) {
+}
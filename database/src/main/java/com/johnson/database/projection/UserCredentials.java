@@ -0,0 +1,22 @@
+package com.johnson.database.projection;
+
+import java.time.OffsetDateTime;
+
+/*
+ * Login-path projection: the principal fields plus the password hash, read in
+ * one query. Never cached; only principal() outlives the login request.
+ */
+public record UserCredentials(
+    String id,
+    String email,
+    String firstname,
+    boolean isDeleted,
+    boolean isDeactivated,
+    OffsetDateTime createdAt,
+    OffsetDateTime updatedAt,
+    String passwordHash) {
+
+  public UserPrincipal principal() {
+    return new UserPrincipal(id, email, firstname, isDeleted, isDeactivated, createdAt, updatedAt);
+  }
+}
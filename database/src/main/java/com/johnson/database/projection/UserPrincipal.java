@@ -0,0 +1,21 @@
+package com.johnson.database.projection;
+
+import java.io.Serializable;
+import java.time.OffsetDateTime;
+
+/*
+ * Immutable snapshot of the user fields the authentication path needs, read
+ * by a constructor-expression query (UserRepository.findPrincipalByEmail) so
+ * it is never a managed entity and cannot trigger lazy loads of posts or
+ * sessions. Safe to cache (in process or in Redis): it never holds the
+ * password hash.
+ */
+public record UserPrincipal(
+    String id,
+    String email,
+    String firstname,
+    boolean isDeleted,
+    boolean isDeactivated,
+    OffsetDateTime createdAt,
+    OffsetDateTime updatedAt) implements Serializable {
+}
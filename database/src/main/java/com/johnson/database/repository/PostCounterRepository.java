@@ -0,0 +1,21 @@
+package com.johnson.database.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.johnson.database.model.PostCounterModel;
+
+import jakarta.transaction.Transactional;
+
+/// deltas are applied in batches by PostCounterService with plain JDBC; this
+/// repository only creates the zeroed row of a new post
+public interface PostCounterRepository extends JpaRepository<PostCounterModel, String> {
+
+  /// plain insert: save() would first select the row, since the id is assigned
+  @Transactional
+  @Modifying
+  @Query(value = "INSERT INTO blog_post_counters (post_id, view_count, like_count) VALUES (:postId, 0, 0)", nativeQuery = true)
+  int createCounters(@Param("postId") String postId);
+}
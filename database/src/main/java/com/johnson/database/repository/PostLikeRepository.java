@@ -0,0 +1,51 @@
+package com.johnson.database.repository;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.johnson.database.model.PostLikeModel;
+import com.johnson.database.projection.TrendingSeedRow;
+
+import jakarta.transaction.Transactional;
+
+public interface PostLikeRepository extends JpaRepository<PostLikeModel, String> {
+
+  /// Idempotent like (PostgreSQL): returns 0 when the user already liked the
+  /// post, including when a concurrent like of the same user won the insert.
+  @Transactional
+  @Modifying
+  @Query(value = "INSERT INTO blog_post_likes (id, created_at, updated_at, post_id, user_id) "
+      + "VALUES (:id, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, :postId, :userId) "
+      + "ON CONFLICT (post_id, user_id) DO NOTHING", nativeQuery = true)
+  int insertLike(@Param("id") String id, @Param("postId") String postId, @Param("userId") String userId);
+
+  /// portable variant of insertLike (H2); concurrent likes of the same user
+  /// may still collide on the unique constraint
+  @Transactional
+  @Modifying
+  @Query(value = "INSERT INTO blog_post_likes (id, created_at, updated_at, post_id, user_id) "
+      + "SELECT :id, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, :postId, :userId "
+      + "WHERE NOT EXISTS (SELECT 1 FROM blog_post_likes WHERE post_id = :postId AND user_id = :userId)",
+      nativeQuery = true)
+  int insertLikeIfAbsent(@Param("id") String id, @Param("postId") String postId, @Param("userId") String userId);
+
+  /// likes of live posts since the given time, per post, for the trending
+  /// seed; runs once at startup, never per request
+  @Query("SELECT new com.johnson.database.projection.TrendingSeedRow("
+      + "p.id, p.genre, COUNT(l), MAX(l.createdAt)) "
+      + "FROM PostLikeModel l JOIN PostModel p ON p.id = l.postId "
+      + "WHERE l.createdAt >= :since AND p.isDeleted = false "
+      + "GROUP BY p.id, p.genre")
+  List<TrendingSeedRow> findLikesSince(@Param("since") OffsetDateTime since);
+
+  /// returns 1 when the like existed
+  @Transactional
+  @Modifying
+  @Query("DELETE FROM PostLikeModel l WHERE l.postId = :postId AND l.userId = :userId")
+  int deleteLike(@Param("postId") String postId, @Param("userId") String userId);
+}
@@ -0,0 +1,90 @@
+package com.johnson.database.repository;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.johnson.database.model.PostModel;
+import com.johnson.database.projection.PostDetail;
+import com.johnson.database.projection.PostIndexRow;
+import com.johnson.database.projection.PostSummary;
+import com.johnson.database.projection.TrendingSeedRow;
+
+import jakarta.transaction.Transactional;
+
+/*
+ * Feeds are keyset pages ordered by (created_at DESC, id DESC): each page
+ * seeks past the last (createdAt, id) of the previous one on the partial
+ * indexes ix_blog_posts_live_author / ix_blog_posts_live_genre, so page 1000
+ * costs the same as page 1. The leading "createdAt <= :createdAt" is
+ * redundant with the OR but gives the planner an index range to start from.
+ */
+public interface PostRepository extends JpaRepository<PostModel, String> {
+
+  @Query("SELECT new com.johnson.database.projection.PostSummary("
+      + "p.id, p.title, p.genre, p.thumbnail, p.bloggerId, p.createdAt, p.updatedAt, "
+      + "COALESCE(pc.viewCount, 0), COALESCE(pc.likeCount, 0)) "
+      + "FROM PostModel p LEFT JOIN PostCounterModel pc ON pc.postId = p.id WHERE p.bloggerId = :authorId AND p.isDeleted = false "
+      + "AND p.createdAt <= :createdAt AND (p.createdAt < :createdAt OR p.id < :id) "
+      + "ORDER BY p.createdAt DESC, p.id DESC")
+  List<PostSummary> findAuthorFeed(@Param("authorId") String authorId,
+      @Param("createdAt") OffsetDateTime createdAt, @Param("id") String id, Pageable pageable);
+
+  @Query("SELECT new com.johnson.database.projection.PostSummary("
+      + "p.id, p.title, p.genre, p.thumbnail, p.bloggerId, p.createdAt, p.updatedAt, "
+      + "COALESCE(pc.viewCount, 0), COALESCE(pc.likeCount, 0)) "
+      + "FROM PostModel p LEFT JOIN PostCounterModel pc ON pc.postId = p.id WHERE p.genre = :genre AND p.isDeleted = false "
+      + "AND p.createdAt <= :createdAt AND (p.createdAt < :createdAt OR p.id < :id) "
+      + "ORDER BY p.createdAt DESC, p.id DESC")
+  List<PostSummary> findGenreFeed(@Param("genre") String genre,
+      @Param("createdAt") OffsetDateTime createdAt, @Param("id") String id, Pageable pageable);
+
+  @Query("SELECT new com.johnson.database.projection.PostDetail("
+      + "p.id, p.title, p.content, p.genre, p.thumbnail, p.bloggerId, p.createdAt, p.updatedAt, "
+      + "COALESCE(pc.viewCount, 0), COALESCE(pc.likeCount, 0)) "
+      + "FROM PostModel p LEFT JOIN PostCounterModel pc ON pc.postId = p.id WHERE p.id = :id AND p.isDeleted = false")
+  Optional<PostDetail> findDetailById(@Param("id") String id);
+
+  /// feed rows of the given posts, in no particular order (search results)
+  @Query("SELECT new com.johnson.database.projection.PostSummary("
+      + "p.id, p.title, p.genre, p.thumbnail, p.bloggerId, p.createdAt, p.updatedAt, "
+      + "COALESCE(pc.viewCount, 0), COALESCE(pc.likeCount, 0)) "
+      + "FROM PostModel p LEFT JOIN PostCounterModel pc ON pc.postId = p.id WHERE p.id IN :ids AND p.isDeleted = false")
+  List<PostSummary> findSummariesByIds(@Param("ids") List<String> ids);
+
+  /// keyset walk over every post written after (updatedAt, afterId), oldest
+  /// change first, on ix_blog_posts_updated_at; feeds in-process search indexes
+  @Query("SELECT new com.johnson.database.projection.PostIndexRow("
+      + "p.id, p.title, p.content, p.isDeleted, p.updatedAt) "
+      + "FROM PostModel p WHERE p.updatedAt >= :updatedAt "
+      + "AND (p.updatedAt > :updatedAt OR p.id > :afterId) "
+      + "ORDER BY p.updatedAt, p.id")
+  List<PostIndexRow> findChangedSince(@Param("updatedAt") OffsetDateTime updatedAt,
+      @Param("afterId") String afterId, Pageable pageable);
+
+  boolean existsByIdAndIsDeletedFalse(String id);
+
+  @Query("SELECT p.genre FROM PostModel p WHERE p.id = :id AND p.isDeleted = false")
+  Optional<String> findLiveGenre(@Param("id") String id);
+
+  /// views of live posts created since the given time, for the trending seed
+  @Query("SELECT new com.johnson.database.projection.TrendingSeedRow("
+      + "p.id, p.genre, pc.viewCount, p.createdAt) "
+      + "FROM PostModel p JOIN PostCounterModel pc ON pc.postId = p.id "
+      + "WHERE p.createdAt >= :since AND p.isDeleted = false AND pc.viewCount > 0")
+  List<TrendingSeedRow> findViewsOfPostsCreatedSince(@Param("since") OffsetDateTime since);
+
+  /// soft delete, only by the author; returns 0 when the post is missing,
+  /// already deleted or not theirs
+  @Transactional
+  @Modifying
+  @Query("UPDATE PostModel p SET p.isDeleted = true, p.updatedAt = :now "
+      + "WHERE p.id = :id AND p.bloggerId = :bloggerId AND p.isDeleted = false")
+  int softDelete(@Param("id") String id, @Param("bloggerId") String bloggerId, @Param("now") OffsetDateTime now);
+}
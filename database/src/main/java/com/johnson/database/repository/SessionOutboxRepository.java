@@ -0,0 +1,41 @@
+package com.johnson.database.repository;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.johnson.database.model.SessionOutboxModel;
+
+import jakarta.persistence.LockModeType;
+import jakarta.transaction.Transactional;
+
+public interface SessionOutboxRepository extends JpaRepository<SessionOutboxModel, String> {
+  /// oldest due events, locked (SELECT ... FOR UPDATE) so relays on several nodes
+  /// take turns claiming them; a user with an earlier event leased or waiting
+  /// for retry is held back entirely, so one session's events stay in order
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("SELECT o FROM SessionOutboxModel o WHERE o.nextAttemptAt <= :now AND NOT EXISTS ("
+      + "SELECT 1 FROM SessionOutboxModel p WHERE p.userId = o.userId AND p.id < o.id AND p.nextAttemptAt > :now) "
+      + "ORDER BY o.id")
+  List<SessionOutboxModel> findDueForRelay(@Param("now") OffsetDateTime now, Pageable pageable);
+
+  /// a failed attempt: counts it and sets when the event is next due
+  @Modifying
+  @Query("UPDATE SessionOutboxModel o SET o.attempts = :attempts, o.nextAttemptAt = :nextAttemptAt WHERE o.id = :id")
+  @Transactional
+  int reschedule(@Param("id") String id, @Param("attempts") int attempts,
+      @Param("nextAttemptAt") OffsetDateTime nextAttemptAt);
+
+  /// leases claimed events (a future time) or hands them back (now)
+  @Modifying
+  @Query("UPDATE SessionOutboxModel o SET o.nextAttemptAt = :nextAttemptAt WHERE o.id IN :ids")
+  @Transactional
+  int postpone(@Param("ids") Collection<String> ids, @Param("nextAttemptAt") OffsetDateTime nextAttemptAt);
+}
@@ -3,12 +3,15 @@ package com.johnson.database.repository;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import com.johnson.database.model.UserModel;
+import com.johnson.database.projection.UserCredentials;
+import com.johnson.database.projection.UserPrincipal;
 
 import jakarta.transaction.Transactional;
 
@@ -16,6 +19,18 @@ public interface UserRepository extends JpaRepository<UserModel, String> {
 
   Optional<UserModel> findByEmail(String email);
 
+  /// authentication principal without loading the entity (no persistence context, no collections)
+  @Query("SELECT new com.johnson.database.projection.UserPrincipal("
+      + "u.id, u.email, u.firstname, u.isDeleted, u.isDeactivated, u.createdAt, u.updatedAt) "
+      + "FROM UserModel u WHERE u.email = :email")
+  Optional<UserPrincipal> findPrincipalByEmail(@Param("email") String email);
+
+  /// login only: the principal plus the password hash in a single query
+  @Query("SELECT new com.johnson.database.projection.UserCredentials("
+      + "u.id, u.email, u.firstname, u.isDeleted, u.isDeactivated, u.createdAt, u.updatedAt, u.password) "
+      + "FROM UserModel u WHERE u.email = :email")
+  Optional<UserCredentials> findCredentialsByEmail(@Param("email") String email);
+
   // @Query("SELECT COUNT(u) > 0 FROM UserModel u WHERE u.email = :email")
   boolean existsByEmail(@Param("email") String email);
 
@@ -26,10 +41,11 @@ public interface UserRepository extends JpaRepository<UserModel, String> {
   @Query(value = "UPDATE blog_users u SET u.email = :email, u.updated_at = CURRENT_TIMESTAMP WHERE u.id = :id", nativeQuery = true)
   int updateUser(@Param("id") String id, @Param("email") String email);
 
-  @Query(value = "SELECT COUNT(*) FROM users;", nativeQuery = true)
-  long countUsers();
-
-  @Query(value = "SELECT * FROM users LIMIT :limit OFFSET :offset", nativeQuery = true)
-  List<UserModel> getUsers(@Param("limit") int limit, @Param("offset") int offset);
+  /// keyset page of users ordered by their time-ordered (UUIDv7) id: seeks past
+  /// afterId on the primary key index, so every page costs the same
+  @Query("SELECT new com.johnson.database.projection.UserPrincipal("
+      + "u.id, u.email, u.firstname, u.isDeleted, u.isDeactivated, u.createdAt, u.updatedAt) "
+      + "FROM UserModel u WHERE u.id > :afterId ORDER BY u.id")
+  List<UserPrincipal> findPageAfter(@Param("afterId") String afterId, Pageable pageable);
 
 }
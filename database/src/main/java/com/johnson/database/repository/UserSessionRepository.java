@@ -1,5 +1,8 @@
 package com.johnson.database.repository;
 
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -8,6 +11,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import com.johnson.database.model.UserSessionModel;
+import com.johnson.database.projection.RotatedSession;
 
 import jakarta.transaction.Transactional;
 
@@ -16,27 +20,139 @@ public interface UserSessionRepository extends JpaRepository<UserSessionModel, S
   Optional<UserSessionModel> findUserSession(@Param("jti") String jti, @Param("userId") String userId,
       @Param("deviceId") String deviceId);
 
+  /// revocation check; an index-only scan of ix_blog_user_sessions_live_device
+  @Query(value = "SELECT EXISTS (SELECT 1 FROM blog_user_sessions WHERE device_id = :deviceId AND user_id = :userId AND jti = :jti AND is_logged_out = FALSE)", nativeQuery = true)
+  boolean isSessionLive(@Param("jti") String jti, @Param("userId") String userId, @Param("deviceId") String deviceId);
+
   @Query(value = "SELECT * FROM blog_user_sessions u WHERE u.device_id = :deviceId", nativeQuery = true)
   Optional<UserSessionModel> findUserSessionByDeviceId(@Param("deviceId") String deviceId);
 
+  /// Refresh-token rotation as one compare-and-set (PostgreSQL): only moves the
+  /// session to the new jti when the presented jti is still current and the
+  /// session is live. Empty when the compare fails. Not @Modifying: the
+  /// RETURNING row is read as a result set, so it is marked as a write here.
+  @Transactional
+  @Query(value = """
+      UPDATE blog_user_sessions
+      SET previous_jti = jti, jti = :newJti, updated_at = CURRENT_TIMESTAMP
+      WHERE user_id = :userId AND device_id = :deviceId AND jti = :jti AND is_logged_out = FALSE
+      RETURNING ip_address AS ipAddress, location AS location
+      """, nativeQuery = true)
+  Optional<RotatedSession> rotateJtiReturning(@Param("jti") String jti, @Param("newJti") String newJti,
+      @Param("userId") String userId, @Param("deviceId") String deviceId);
+
+  /// portable variant of rotateJtiReturning (H2), same compare-and-set
+  @Modifying
+  @Query(value = "UPDATE blog_user_sessions SET previous_jti = jti, jti = :newJti, updated_at = CURRENT_TIMESTAMP WHERE user_id = :userId AND device_id = :deviceId AND jti = :jti AND is_logged_out = FALSE", nativeQuery = true)
+  @Transactional
+  int rotateJti(@Param("jti") String jti, @Param("newJti") String newJti, @Param("userId") String userId,
+      @Param("deviceId") String deviceId);
+
+  /// reuse detection: logs the device out when an already rotated jti is
+  /// presented again, unless it was rotated after :graceCutoff (a concurrent
+  /// refresh with the same token lost the race); returns 1 when revoked
   @Modifying
-  @Query(value = "UPDATE blog_user_sessions u SET u.jti = :jti, u.updated_at = CURRENT_TIMESTAMP WHERE u.user_id = :userId AND u.device_id = :deviceId", nativeQuery = true)
+  @Query(value = "UPDATE blog_user_sessions SET is_logged_out = TRUE, updated_at = CURRENT_TIMESTAMP WHERE user_id = :userId AND device_id = :deviceId AND previous_jti = :jti AND is_logged_out = FALSE AND updated_at < :graceCutoff", nativeQuery = true)
   @Transactional
-  int updateJti(@Param("jti") String jti, @Param("userId") String userId, @Param("deviceId") String deviceId);
+  int revokeOnJtiReuse(@Param("jti") String jti, @Param("userId") String userId, @Param("deviceId") String deviceId,
+      @Param("graceCutoff") OffsetDateTime graceCutoff);
 
+  /// portable login path: re-activates the caller's own session on this device;
+  /// returns 0 when the device has no session or belongs to another user. A
+  /// login starts a new rotation chain, so tokens of the ended one no longer
+  /// count as reuse.
   @Modifying
-  @Query(value = "UPDATE blog_user_sessions u SET u.jti = :jti, u.is_logged_out = :isLoggedOut, u.updated_at = CURRENT_TIMESTAMP WHERE u.user_id = :userId AND u.deviceId = deviceId", nativeQuery = true)
+  @Query(value = "UPDATE blog_user_sessions SET jti = :jti, previous_jti = NULL, ip_address = :ipAddress, location = :location, is_logged_out = :isLoggedOut, updated_at = CURRENT_TIMESTAMP WHERE user_id = :userId AND device_id = :deviceId", nativeQuery = true)
   @Transactional
   int updateJtiAndIsLoggedOut(@Param("jti") String jti, @Param("userId") String userId,
-      @Param("deviceId") String deviceId, @Param("isLoggedOut") boolean isLoggedOut);
+      @Param("deviceId") String deviceId, @Param("ipAddress") String ipAddress, @Param("location") String location,
+      @Param("isLoggedOut") boolean isLoggedOut);
+
+  @Query(value = "SELECT EXISTS (SELECT 1 FROM blog_user_sessions WHERE device_id = :deviceId)", nativeQuery = true)
+  boolean existsByDeviceIdNative(@Param("deviceId") String deviceId);
+
+  /// Login in one statement (PostgreSQL): inserts the device session or, when the
+  /// device already has one, re-activates it with the new jti. The conflict
+  /// update only applies when the device belongs to the same user, so an empty
+  /// result means the device id is owned by someone else. previous_jti is
+  /// cleared as in updateJtiAndIsLoggedOut.
+  @Transactional
+  @Query(value = """
+      INSERT INTO blog_user_sessions (id, device_id, jti, ip_address, location, is_logged_out, user_id, created_at, updated_at)
+      VALUES (:id, :deviceId, :jti, :ipAddress, :location, FALSE, :userId, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)
+      ON CONFLICT (device_id) DO UPDATE SET
+        jti = EXCLUDED.jti,
+        previous_jti = NULL,
+        ip_address = EXCLUDED.ip_address,
+        location = EXCLUDED.location,
+        is_logged_out = FALSE,
+        updated_at = CURRENT_TIMESTAMP
+      WHERE blog_user_sessions.user_id = EXCLUDED.user_id
+      RETURNING CAST(user_id AS VARCHAR(36))
+      """, nativeQuery = true)
+  Optional<String> upsertSession(@Param("id") String id, @Param("userId") String userId,
+      @Param("deviceId") String deviceId, @Param("jti") String jti, @Param("ipAddress") String ipAddress,
+      @Param("location") String location);
 
   @Modifying
-  @Query(value = "UPDATE blog_user_sessions u SET u.is_logged_out = TRUE, u.updated_at = CURRENT_TIMESTAMP WHERE u.user_id = :userId AND u.deviceId = :deviceId", nativeQuery = true)
+  @Query(value = "UPDATE blog_user_sessions SET location = :location, updated_at = CURRENT_TIMESTAMP WHERE user_id = :userId AND device_id = :deviceId", nativeQuery = true)
+  @Transactional
+  int updateLocation(@Param("location") String location, @Param("userId") String userId,
+      @Param("deviceId") String deviceId);
+
+  @Modifying
+  @Query(value = "UPDATE blog_user_sessions SET is_logged_out = TRUE, updated_at = CURRENT_TIMESTAMP WHERE user_id = :userId AND device_id = :deviceId", nativeQuery = true)
   @Transactional
   int logoutASession(@Param("userId") String userId, @Param("deviceId") String deviceId);
 
   @Modifying
-  @Query(value = "UPDATE blog_user_sessions u SET u.is_logged_out = TRUE, u.updated_at = CURRENT_TIMESTAMP WHERE u.user_id = :userId", nativeQuery = true)
+  @Query(value = "UPDATE blog_user_sessions SET is_logged_out = TRUE, updated_at = CURRENT_TIMESTAMP WHERE user_id = :userId AND is_logged_out = FALSE", nativeQuery = true)
+  @Transactional
+  int logoutAllSessionsByUserId(@Param("userId") String userId);
+
+  /// marks at most :batchSize live sessions idle since before :cutoff (their
+  /// refresh token has expired) as logged out
+  @Modifying
+  @Query(value = "UPDATE blog_user_sessions SET is_logged_out = TRUE, updated_at = CURRENT_TIMESTAMP WHERE id IN (SELECT id FROM blog_user_sessions WHERE is_logged_out = FALSE AND updated_at < :cutoff ORDER BY id LIMIT :batchSize)", nativeQuery = true)
+  @Transactional
+  int logoutExpiredSessions(@Param("cutoff") OffsetDateTime cutoff, @Param("batchSize") int batchSize);
+
+  /// same, for devices whose Redis session hash was reported expired
+  @Modifying
+  @Query(value = "UPDATE blog_user_sessions SET is_logged_out = TRUE, updated_at = CURRENT_TIMESTAMP WHERE device_id IN (:deviceIds) AND is_logged_out = FALSE AND updated_at < :cutoff", nativeQuery = true)
   @Transactional
-  int logoutAllSessionsByUserId(@Param("userid") String userId);
+  int logoutExpiredDevices(@Param("deviceIds") Collection<String> deviceIds, @Param("cutoff") OffsetDateTime cutoff);
+
+  /// next chunk of purgeable ids after :afterId (keyset walk of the primary key):
+  /// logged out before :loggedOutCutoff, or idle past the refresh lifetime
+  @Query(value = "SELECT CAST(id AS VARCHAR(36)) FROM blog_user_sessions WHERE id > :afterId AND ((is_logged_out = TRUE AND updated_at < :loggedOutCutoff) OR updated_at < :expiredCutoff) ORDER BY id LIMIT :batchSize", nativeQuery = true)
+  List<String> findPurgeableIds(@Param("afterId") String afterId,
+      @Param("loggedOutCutoff") OffsetDateTime loggedOutCutoff,
+      @Param("expiredCutoff") OffsetDateTime expiredCutoff, @Param("batchSize") int batchSize);
+
+  /// deletes the purgeable rows of one primary key range; the condition is
+  /// checked again so a session re-activated meanwhile survives
+  @Modifying
+  @Query(value = "DELETE FROM blog_user_sessions WHERE id BETWEEN :fromId AND :toId AND ((is_logged_out = TRUE AND updated_at < :loggedOutCutoff) OR updated_at < :expiredCutoff)", nativeQuery = true)
+  int deletePurgeableRange(@Param("fromId") String fromId, @Param("toId") String toId,
+      @Param("loggedOutCutoff") OffsetDateTime loggedOutCutoff,
+      @Param("expiredCutoff") OffsetDateTime expiredCutoff);
+
+  /// same as deletePurgeableRange but moves the rows to blog_user_sessions_archive
+  /// in the same statement (PostgreSQL)
+  @Modifying
+  @Query(value = """
+      WITH purged AS (
+        DELETE FROM blog_user_sessions
+        WHERE id BETWEEN :fromId AND :toId
+          AND ((is_logged_out = TRUE AND updated_at < :loggedOutCutoff) OR updated_at < :expiredCutoff)
+        RETURNING id, user_id, device_id, ip_address, location, is_logged_out, created_at, updated_at
+      )
+      INSERT INTO blog_user_sessions_archive (id, user_id, device_id, ip_address, location, is_logged_out, created_at, updated_at, archived_at)
+      SELECT id, user_id, device_id, ip_address, location, is_logged_out, created_at, updated_at, CURRENT_TIMESTAMP FROM purged
+      ON CONFLICT (id) DO NOTHING
+      """, nativeQuery = true)
+  int archivePurgeableRange(@Param("fromId") String fromId, @Param("toId") String toId,
+      @Param("loggedOutCutoff") OffsetDateTime loggedOutCutoff,
+      @Param("expiredCutoff") OffsetDateTime expiredCutoff);
 }
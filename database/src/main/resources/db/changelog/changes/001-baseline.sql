@@ -0,0 +1,98 @@
+--liquibase formatted sql
+
+-- Schema as previously created by ddl-auto: update. Every table is skipped
+-- (marked ran) when it already exists, so existing databases adopt the
+-- changelog without changes.
+
+--changeset johnson:001-blog-users
+--preconditions onFail:MARK_RAN
+--precondition-sql-check expectedResult:0 SELECT COUNT(*) FROM information_schema.tables WHERE table_schema = current_schema() AND table_name = 'blog_users'
+CREATE TABLE blog_users (
+  id VARCHAR(255) NOT NULL,
+  created_at TIMESTAMP WITH TIME ZONE NOT NULL,
+  updated_at TIMESTAMP WITH TIME ZONE NOT NULL,
+  firstname VARCHAR(100) NOT NULL,
+  password VARCHAR(255) NOT NULL,
+  email VARCHAR(100) NOT NULL,
+  is_deleted BOOLEAN NOT NULL DEFAULT FALSE,
+  is_deactivated BOOLEAN NOT NULL DEFAULT FALSE,
+  CONSTRAINT pk_blog_users PRIMARY KEY (id),
+  CONSTRAINT uq_blog_users_email UNIQUE (email)
+);
+--rollback DROP TABLE blog_users;
+
+--changeset johnson:001-blog-posts
+--preconditions onFail:MARK_RAN
+--precondition-sql-check expectedResult:0 SELECT COUNT(*) FROM information_schema.tables WHERE table_schema = current_schema() AND table_name = 'blog_posts'
+CREATE TABLE blog_posts (
+  id VARCHAR(255) NOT NULL,
+  created_at TIMESTAMP WITH TIME ZONE NOT NULL,
+  updated_at TIMESTAMP WITH TIME ZONE NOT NULL,
+  title VARCHAR(100) NOT NULL,
+  content VARCHAR(1500) NOT NULL,
+  c DATE,
+  is_deleted BOOLEAN NOT NULL,
+  thumbnail VARCHAR(255),
+  genre VARCHAR(255) NOT NULL,
+  user_id VARCHAR(255) NOT NULL,
+  CONSTRAINT pk_blog_posts PRIMARY KEY (id),
+  CONSTRAINT composite_uq_blog_posts_title_user_id UNIQUE (title, user_id),
+  CONSTRAINT fk_blog_posts_user_id FOREIGN KEY (user_id) REFERENCES blog_users (id)
+);
+--rollback DROP TABLE blog_posts;
+
+--changeset johnson:001-blog-user-sessions
+--preconditions onFail:MARK_RAN
+--precondition-sql-check expectedResult:0 SELECT COUNT(*) FROM information_schema.tables WHERE table_schema = current_schema() AND table_name = 'blog_user_sessions'
+CREATE TABLE blog_user_sessions (
+  id VARCHAR(255) NOT NULL,
+  created_at TIMESTAMP WITH TIME ZONE NOT NULL,
+  updated_at TIMESTAMP WITH TIME ZONE NOT NULL,
+  device_id VARCHAR(100) NOT NULL,
+  jti VARCHAR(60) NOT NULL,
+  previous_jti VARCHAR(60),
+  ip_address VARCHAR(30) NOT NULL,
+  location VARCHAR(255),
+  is_logged_out BOOLEAN NOT NULL,
+  user_id VARCHAR(255) NOT NULL,
+  CONSTRAINT pk_blog_user_sessions PRIMARY KEY (id),
+  CONSTRAINT uq_blog_user_sessions_device_id UNIQUE (device_id),
+  CONSTRAINT fk_blog_user_sessions_user_id FOREIGN KEY (user_id) REFERENCES blog_users (id)
+);
+--rollback DROP TABLE blog_user_sessions;
+
+--changeset johnson:001-blog-session-outbox
+--preconditions onFail:MARK_RAN
+--precondition-sql-check expectedResult:0 SELECT COUNT(*) FROM information_schema.tables WHERE table_schema = current_schema() AND table_name = 'blog_session_outbox'
+CREATE TABLE blog_session_outbox (
+  id VARCHAR(255) NOT NULL,
+  created_at TIMESTAMP WITH TIME ZONE NOT NULL,
+  updated_at TIMESTAMP WITH TIME ZONE NOT NULL,
+  operation VARCHAR(30) NOT NULL,
+  user_id VARCHAR(255) NOT NULL,
+  device_id VARCHAR(100),
+  payload TEXT,
+  attempts INTEGER NOT NULL,
+  next_attempt_at TIMESTAMP WITH TIME ZONE NOT NULL,
+  CONSTRAINT pk_blog_session_outbox PRIMARY KEY (id)
+);
+CREATE INDEX ix_blog_session_outbox_next_attempt_at ON blog_session_outbox (next_attempt_at);
+CREATE INDEX ix_blog_session_outbox_user_id ON blog_session_outbox (user_id);
+--rollback DROP TABLE blog_session_outbox;
+
+--changeset johnson:001-blog-user-sessions-archive
+--preconditions onFail:MARK_RAN
+--precondition-sql-check expectedResult:0 SELECT COUNT(*) FROM information_schema.tables WHERE table_schema = current_schema() AND table_name = 'blog_user_sessions_archive'
+CREATE TABLE blog_user_sessions_archive (
+  id VARCHAR(255) NOT NULL,
+  user_id VARCHAR(255) NOT NULL,
+  device_id VARCHAR(100) NOT NULL,
+  ip_address VARCHAR(30) NOT NULL,
+  location VARCHAR(255),
+  is_logged_out BOOLEAN NOT NULL,
+  created_at TIMESTAMP WITH TIME ZONE NOT NULL,
+  updated_at TIMESTAMP WITH TIME ZONE NOT NULL,
+  archived_at TIMESTAMP WITH TIME ZONE NOT NULL,
+  CONSTRAINT pk_blog_user_sessions_archive PRIMARY KEY (id)
+);
+--rollback DROP TABLE blog_user_sessions_archive;
@@ -0,0 +1,96 @@
+--liquibase formatted sql
+
+-- Indexes for the auth path. Built CONCURRENTLY so an upgrade does not lock
+-- blog_user_sessions or blog_users against logins; that needs each statement
+-- outside a transaction, hence runInTransaction:false and one index per
+-- changeset.
+
+--changeset johnson:002-drop-redundant-unique-constraints
+-- databases created by ddl-auto carry a unique constraint on every primary
+-- key (a second, identical index to maintain on each insert) and the old
+-- (device_id, jti) constraint, which never prevented two rows per device
+ALTER TABLE blog_users DROP CONSTRAINT IF EXISTS uq_blog_users_id;
+ALTER TABLE blog_posts DROP CONSTRAINT IF EXISTS uq_blog_posts_id;
+ALTER TABLE blog_user_sessions DROP CONSTRAINT IF EXISTS uq_blog_user_sessions_id;
+ALTER TABLE blog_user_sessions DROP CONSTRAINT IF EXISTS composite_uq_blog_user_sessions_device_id_jti;
+ALTER TABLE blog_user_sessions ADD COLUMN IF NOT EXISTS previous_jti VARCHAR(60);
+
+--changeset johnson:002-collapse-duplicate-device-sessions runAlways:true
+--preconditions onFail:MARK_RAN
+--precondition-sql-check expectedResult:0 SELECT COUNT(*) FROM pg_constraint WHERE conname = 'uq_blog_user_sessions_device_id'
+-- the old (device_id, jti) constraint allowed several rows per device, which
+-- would fail the unique build below: keep the most recently used row of each
+-- device. Live sessions of other users on the device lose their row (their
+-- refresh tokens are rejected from now on) and are deleted from Redis through
+-- the outbox. Runs until the constraint exists, as nodes still on the old
+-- code may insert duplicates meanwhile.
+WITH ranked AS (
+  SELECT id, user_id, device_id, is_logged_out,
+    FIRST_VALUE(user_id) OVER newest_first AS kept_user_id,
+    ROW_NUMBER() OVER newest_first AS position
+  FROM blog_user_sessions
+  WINDOW newest_first AS (PARTITION BY device_id ORDER BY updated_at DESC, id DESC)
+), removed AS (
+  DELETE FROM blog_user_sessions s
+  USING ranked r
+  WHERE s.id = r.id AND r.position > 1
+  RETURNING r.user_id, r.device_id, r.is_logged_out, r.kept_user_id
+)
+INSERT INTO blog_session_outbox (id, created_at, updated_at, operation, user_id, device_id, payload, attempts, next_attempt_at)
+SELECT gen_random_uuid()::text, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, 'DELETE', user_id, device_id, NULL, 0,
+  CURRENT_TIMESTAMP
+FROM (
+  SELECT DISTINCT user_id, device_id FROM removed
+  WHERE is_logged_out = FALSE AND user_id <> kept_user_id
+) logged_out;
+
+--changeset johnson:002-drop-invalid-uq-blog-user-sessions-device-id runAlways:true splitStatements:false
+--preconditions onFail:MARK_RAN
+--precondition-sql-check expectedResult:0 SELECT COUNT(*) FROM pg_constraint WHERE conname = 'uq_blog_user_sessions_device_id'
+-- a failed CREATE INDEX CONCURRENTLY leaves an INVALID index behind, which
+-- IF NOT EXISTS below would keep and ADD CONSTRAINT then reject; drop it so
+-- the next start builds it again
+DO $$
+BEGIN
+  IF EXISTS (SELECT 1 FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid
+             WHERE c.relname = 'uq_blog_user_sessions_device_id' AND NOT i.indisvalid) THEN
+    DROP INDEX uq_blog_user_sessions_device_id;
+  END IF;
+END $$;
+
+--changeset johnson:002-uq-blog-user-sessions-device-id runInTransaction:false
+--preconditions onFail:MARK_RAN
+--precondition-sql-check expectedResult:0 SELECT COUNT(*) FROM pg_constraint WHERE conname = 'uq_blog_user_sessions_device_id'
+-- one session row per device, required by the login upsert (ON CONFLICT (device_id))
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS uq_blog_user_sessions_device_id
+  ON blog_user_sessions (device_id);
+ALTER TABLE blog_user_sessions ADD CONSTRAINT uq_blog_user_sessions_device_id
+  UNIQUE USING INDEX uq_blog_user_sessions_device_id;
+
+--changeset johnson:002-ix-blog-user-sessions-live-device runInTransaction:false
+-- revocation check (jti, user_id, device_id) against live sessions only:
+-- partial + covering, so it is an index-only scan that ignores dead rows
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_blog_user_sessions_live_device
+  ON blog_user_sessions (device_id) INCLUDE (user_id, jti)
+  WHERE is_logged_out = FALSE;
+--rollback DROP INDEX CONCURRENTLY IF EXISTS ix_blog_user_sessions_live_device;
+
+--changeset johnson:002-ix-blog-user-sessions-user-id runInTransaction:false
+-- logout of all devices, session listing, and the foreign key to blog_users
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_blog_user_sessions_user_id
+  ON blog_user_sessions (user_id);
+--rollback DROP INDEX CONCURRENTLY IF EXISTS ix_blog_user_sessions_user_id;
+
+--changeset johnson:002-ix-blog-user-sessions-live-updated-at runInTransaction:false
+-- expiry sweep: live sessions not rotated within the refresh lifetime
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_blog_user_sessions_live_updated_at
+  ON blog_user_sessions (updated_at)
+  WHERE is_logged_out = FALSE;
+--rollback DROP INDEX CONCURRENTLY IF EXISTS ix_blog_user_sessions_live_updated_at;
+
+--changeset johnson:002-ix-blog-users-email-principal runInTransaction:false
+-- principal lookup by email (UserRepository.findPrincipalByEmail) answered
+-- from the index alone
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_blog_users_email_principal
+  ON blog_users (email) INCLUDE (id, firstname, is_deleted, is_deactivated, created_at, updated_at);
+--rollback DROP INDEX CONCURRENTLY IF EXISTS ix_blog_users_email_principal;
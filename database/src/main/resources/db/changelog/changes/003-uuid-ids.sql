@@ -0,0 +1,43 @@
+--liquibase formatted sql
+
+-- Ids and user_id foreign keys move from VARCHAR(255) (36-character UUIDv7
+-- strings) to native uuid (16 bytes), halving the primary key and foreign key
+-- indexes. Existing values are canonical UUID strings, so the cast is exact.
+-- ALTER COLUMN TYPE rewrites each table under an exclusive lock: on large
+-- databases run it in a maintenance window.
+
+--changeset johnson:003-uuid-ids splitStatements:false
+--preconditions onFail:MARK_RAN
+--precondition-sql-check expectedResult:1 SELECT COUNT(*) FROM information_schema.columns WHERE table_schema = current_schema() AND table_name = 'blog_users' AND column_name = 'id' AND data_type = 'character varying'
+DO $$
+DECLARE
+  fk RECORD;
+BEGIN
+  -- foreign keys created by ddl-auto have generated names; drop whatever references blog_users
+  FOR fk IN
+    SELECT conrelid::regclass AS table_name, conname
+    FROM pg_constraint
+    WHERE contype = 'f' AND confrelid = 'blog_users'::regclass
+  LOOP
+    EXECUTE format('ALTER TABLE %s DROP CONSTRAINT %I', fk.table_name, fk.conname);
+  END LOOP;
+END $$;
+
+ALTER TABLE blog_users ALTER COLUMN id TYPE uuid USING id::uuid;
+ALTER TABLE blog_posts
+  ALTER COLUMN id TYPE uuid USING id::uuid,
+  ALTER COLUMN user_id TYPE uuid USING user_id::uuid;
+ALTER TABLE blog_user_sessions
+  ALTER COLUMN id TYPE uuid USING id::uuid,
+  ALTER COLUMN user_id TYPE uuid USING user_id::uuid;
+ALTER TABLE blog_session_outbox
+  ALTER COLUMN id TYPE uuid USING id::uuid,
+  ALTER COLUMN user_id TYPE uuid USING user_id::uuid;
+ALTER TABLE blog_user_sessions_archive
+  ALTER COLUMN id TYPE uuid USING id::uuid,
+  ALTER COLUMN user_id TYPE uuid USING user_id::uuid;
+
+ALTER TABLE blog_posts
+  ADD CONSTRAINT fk_blog_posts_user_id FOREIGN KEY (user_id) REFERENCES blog_users (id);
+ALTER TABLE blog_user_sessions
+  ADD CONSTRAINT fk_blog_user_sessions_user_id FOREIGN KEY (user_id) REFERENCES blog_users (id);
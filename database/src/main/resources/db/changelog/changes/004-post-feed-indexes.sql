@@ -0,0 +1,17 @@
+--liquibase formatted sql
+
+-- Keyset feeds over blog_posts (PostRepository.findAuthorFeed / findGenreFeed).
+-- Both match the feed ORDER BY (created_at DESC, id DESC) and skip
+-- soft-deleted rows, so a page is a bounded index range scan with no sort.
+
+--changeset johnson:004-ix-blog-posts-live-author runInTransaction:false
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_blog_posts_live_author
+  ON blog_posts (user_id, created_at DESC, id DESC)
+  WHERE is_deleted = FALSE;
+--rollback DROP INDEX CONCURRENTLY IF EXISTS ix_blog_posts_live_author;
+
+--changeset johnson:004-ix-blog-posts-live-genre runInTransaction:false
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_blog_posts_live_genre
+  ON blog_posts (genre, created_at DESC, id DESC)
+  WHERE is_deleted = FALSE;
+--rollback DROP INDEX CONCURRENTLY IF EXISTS ix_blog_posts_live_genre;
@@ -0,0 +1,23 @@
+--liquibase formatted sql
+
+-- Full-text search over posts (application.search.engine).
+
+--changeset johnson:005-blog-posts-search-vector
+-- stored generated column: kept current by PostgreSQL on every write, title
+-- ranked above content. Adding it rewrites blog_posts once.
+ALTER TABLE blog_posts ADD COLUMN IF NOT EXISTS search_vector tsvector
+  GENERATED ALWAYS AS (
+    setweight(to_tsvector('english', title), 'A') ||
+    setweight(to_tsvector('english', content), 'B')) STORED;
+--rollback ALTER TABLE blog_posts DROP COLUMN search_vector;
+
+--changeset johnson:005-ix-blog-posts-search-vector runInTransaction:false
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_blog_posts_search_vector
+  ON blog_posts USING GIN (search_vector);
+--rollback DROP INDEX CONCURRENTLY IF EXISTS ix_blog_posts_search_vector;
+
+--changeset johnson:005-ix-blog-posts-updated-at runInTransaction:false
+-- change feed of the in-process search index (PostRepository.findChangedSince)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_blog_posts_updated_at
+  ON blog_posts (updated_at, id);
+--rollback DROP INDEX CONCURRENTLY IF EXISTS ix_blog_posts_updated_at;
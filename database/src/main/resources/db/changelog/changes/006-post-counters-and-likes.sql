@@ -0,0 +1,38 @@
+--liquibase formatted sql
+
+--changeset johnson:006-blog-post-counters
+-- written every flush interval for each post read or liked since the last
+-- one; fillfactor leaves room on each page so those updates stay HOT (no
+-- indexed column changes) and do not bloat the primary key index
+CREATE TABLE IF NOT EXISTS blog_post_counters (
+  post_id UUID NOT NULL,
+  view_count BIGINT NOT NULL DEFAULT 0,
+  like_count BIGINT NOT NULL DEFAULT 0,
+  CONSTRAINT pk_blog_post_counters PRIMARY KEY (post_id),
+  CONSTRAINT fk_blog_post_counters_post_id FOREIGN KEY (post_id) REFERENCES blog_posts (id) ON DELETE CASCADE
+) WITH (fillfactor = 70);
+-- existing posts get their row here, new ones when they are created
+INSERT INTO blog_post_counters (post_id)
+  SELECT id FROM blog_posts
+  ON CONFLICT (post_id) DO NOTHING;
+--rollback DROP TABLE blog_post_counters;
+
+--changeset johnson:006-blog-post-likes
+CREATE TABLE IF NOT EXISTS blog_post_likes (
+  id UUID NOT NULL,
+  created_at TIMESTAMP WITH TIME ZONE NOT NULL,
+  updated_at TIMESTAMP WITH TIME ZONE NOT NULL,
+  post_id UUID NOT NULL,
+  user_id UUID NOT NULL,
+  CONSTRAINT pk_blog_post_likes PRIMARY KEY (id),
+  CONSTRAINT uq_blog_post_likes_post_id_user_id UNIQUE (post_id, user_id),
+  CONSTRAINT fk_blog_post_likes_post_id FOREIGN KEY (post_id) REFERENCES blog_posts (id) ON DELETE CASCADE,
+  CONSTRAINT fk_blog_post_likes_user_id FOREIGN KEY (user_id) REFERENCES blog_users (id) ON DELETE CASCADE
+);
+--rollback DROP TABLE blog_post_likes;
+
+--changeset johnson:006-ix-blog-post-likes-user-id runInTransaction:false
+-- foreign key lookups when a user is deleted
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_blog_post_likes_user_id
+  ON blog_post_likes (user_id);
+--rollback DROP INDEX CONCURRENTLY IF EXISTS ix_blog_post_likes_user_id;
@@ -0,0 +1,32 @@
+package com.johnson.utilities;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import com.johnson.utilities.exceptions.BadRequestException;
+
+/// Opaque keyset pagination cursors: the sort key of the last row of a page,
+/// base64url encoded so clients treat it as a token rather than build it.
+public class PageCursor {
+  private static final String SEPARATOR = "|";
+
+  public static String encode(String... keyParts) {
+    String joined = String.join(SEPARATOR, keyParts);
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(joined.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /// returns the key parts; throws BadRequestException for anything that was not
+  /// produced by encode with the same number of parts
+  public static String[] decode(String cursor, int expectedParts) {
+    try {
+      String joined = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+      String[] parts = joined.split("\\|", -1);
+      if (parts.length != expectedParts) {
+        throw new BadRequestException("Invalid cursor");
+      }
+      return parts;
+    } catch (IllegalArgumentException e) {
+      throw new BadRequestException("Invalid cursor");
+    }
+  }
+}
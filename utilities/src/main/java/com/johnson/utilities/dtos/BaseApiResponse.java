@@ -8,7 +8,7 @@ public record BaseApiResponse<T>(
     Integer status,
     String error,
     T data,
-    PaginationMeta meta) {
+    ResponseMeta meta) {
 
   public static <T> BaseApiResponse<T> success(String message, Integer status, T data) {
     return new BaseApiResponse<>(message, status, null, data, null);
@@ -19,7 +19,7 @@ public record BaseApiResponse<T>(
   }
 
   public static <T> BaseApiResponse<T> successWithPagination(String message, Integer status, T data,
-      PaginationMeta meta) {
+      ResponseMeta meta) {
     return new BaseApiResponse<>(message, status, null, data, meta);
   }
 }
@@ -0,0 +1,16 @@
+package com.johnson.utilities.dtos;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/// keyset pagination: pass nextCursor back as ?cursor= to get the next page.
+/// totalItems is only present when a count was requested; totalEstimated tells
+/// whether it is an estimate.
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record CursorPaginationMeta(
+    int size,
+    String nextCursor,
+    boolean hasNext,
+    Long totalItems,
+    Boolean totalEstimated) implements ResponseMeta {
+
+}
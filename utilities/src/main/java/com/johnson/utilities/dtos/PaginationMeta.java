@@ -4,6 +4,6 @@ public record PaginationMeta(
     int page,
     int size,
     long totalItems,
-    int totalPages) {
+    int totalPages) implements ResponseMeta {
 
 }
@@ -0,0 +1,5 @@
+package com.johnson.utilities.dtos;
+
+/// metadata attached to a BaseApiResponse (offset or cursor pagination)
+public interface ResponseMeta {
+}
@@ -0,0 +1,64 @@
+package com.johnson.utilities.dtos.postDtos;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+
+public class CreatePostDto {
+  @NotBlank(message = "title is required")
+  @Size(max = 100, message = "title must not be more than 100 characters")
+  private String title;
+
+  @NotBlank(message = "content is required")
+  @Size(max = 1500, message = "content must not be more than 1500 characters")
+  private String content;
+
+  @NotBlank(message = "genre is required")
+  @Size(max = 255, message = "genre must not be more than 255 characters")
+  private String genre;
+
+  @Size(max = 255, message = "thumbnail must not be more than 255 characters")
+  private String thumbnail;
+
+  public CreatePostDto() {
+  }
+
+  public CreatePostDto(String title, String content, String genre, String thumbnail) {
+    this.title = title;
+    this.content = content;
+    this.genre = genre;
+    this.thumbnail = thumbnail;
+  }
+
+  // Getters and setters
+  public String getTitle() {
+    return title;
+  }
+
+  public void setTitle(String title) {
+    this.title = title;
+  }
+
+  public String getContent() {
+    return content;
+  }
+
+  public void setContent(String content) {
+    this.content = content;
+  }
+
+  public String getGenre() {
+    return genre;
+  }
+
+  public void setGenre(String genre) {
+    this.genre = genre;
+  }
+
+  public String getThumbnail() {
+    return thumbnail;
+  }
+
+  public void setThumbnail(String thumbnail) {
+    this.thumbnail = thumbnail;
+  }
+}
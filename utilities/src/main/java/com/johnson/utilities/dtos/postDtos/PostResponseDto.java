@@ -0,0 +1,22 @@
+package com.johnson.utilities.dtos.postDtos;
+
+import java.time.OffsetDateTime;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/// content is only present on single-post reads; feeds leave it out. Counts
+/// include views and likes not yet flushed; absent on create/update responses
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record PostResponseDto(
+    String id,
+    String title,
+    String content,
+    String genre,
+    String thumbnail,
+    String authorId,
+    @JsonFormat(pattern = "yyy-MM-dd'T'HH:mm:ss") OffsetDateTime createdAt,
+    @JsonFormat(pattern = "yyy-MM-dd'T'HH:mm:ss") OffsetDateTime updatedAt,
+    Long viewCount,
+    Long likeCount) {
+}
@@ -0,0 +1,65 @@
+package com.johnson.utilities.dtos.postDtos;
+
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+
+/// partial update: null fields are left unchanged
+public class UpdatePostDto {
+  @Size(max = 100, message = "title must not be more than 100 characters")
+  @Pattern(regexp = ".*\\S.*", message = "title must not be blank")
+  private String title;
+
+  @Size(max = 1500, message = "content must not be more than 1500 characters")
+  @Pattern(regexp = "(?s).*\\S.*", message = "content must not be blank")
+  private String content;
+
+  @Size(max = 255, message = "genre must not be more than 255 characters")
+  @Pattern(regexp = ".*\\S.*", message = "genre must not be blank")
+  private String genre;
+
+  @Size(max = 255, message = "thumbnail must not be more than 255 characters")
+  private String thumbnail;
+
+  public UpdatePostDto() {
+  }
+
+  public UpdatePostDto(String title, String content, String genre, String thumbnail) {
+    this.title = title;
+    this.content = content;
+    this.genre = genre;
+    this.thumbnail = thumbnail;
+  }
+
+  // Getters and setters
+  public String getTitle() {
+    return title;
+  }
+
+  public void setTitle(String title) {
+    this.title = title;
+  }
+
+  public String getContent() {
+    return content;
+  }
+
+  public void setContent(String content) {
+    this.content = content;
+  }
+
+  public String getGenre() {
+    return genre;
+  }
+
+  public void setGenre(String genre) {
+    this.genre = genre;
+  }
+
+  public String getThumbnail() {
+    return thumbnail;
+  }
+
+  public void setThumbnail(String thumbnail) {
+    this.thumbnail = thumbnail;
+  }
+}
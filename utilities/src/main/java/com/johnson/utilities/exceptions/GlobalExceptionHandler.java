@@ -3,6 +3,7 @@ package com.johnson.utilities.exceptions;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -60,6 +61,16 @@ public class GlobalExceptionHandler {
     return errorResponse(HttpStatus.FORBIDDEN, exc.getMessage());
   }
 
+  @ExceptionHandler(TooManyRequestsException.class)
+  public ResponseEntity<?> handleTooManyRequestsException(TooManyRequestsException exc) {
+    return withRetryAfter(errorResponse(HttpStatus.TOO_MANY_REQUESTS, exc.getMessage()), exc.getRetryAfterSeconds());
+  }
+
+  @ExceptionHandler(ServiceUnavailableException.class)
+  public ResponseEntity<?> handleServiceUnavailableException(ServiceUnavailableException exc) {
+    return withRetryAfter(errorResponse(HttpStatus.SERVICE_UNAVAILABLE, exc.getMessage()), exc.getRetryAfterSeconds());
+  }
+
   @ExceptionHandler(HttpMessageNotReadableException.class)
   public ResponseEntity<?> handleHttpMessageNotReadable(HttpMessageNotReadableException exc) {
     String errorMessage = "Malformed JSON request";
@@ -90,6 +101,13 @@ public class GlobalExceptionHandler {
     return errorResponse(HttpStatus.INTERNAL_SERVER_ERROR, "Something went wrong");
   }
 
+  private ResponseEntity<Map<String, Object>> withRetryAfter(ResponseEntity<Map<String, Object>> response,
+      long retryAfterSeconds) {
+    return ResponseEntity.status(response.getStatusCode())
+        .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+        .body(response.getBody());
+  }
+
   private ResponseEntity<Map<String, Object>> errorResponse(HttpStatus status, String message) {
     Map<String, Object> body = new HashMap<>();
     body.put("status", status.value());
@@ -0,0 +1,14 @@
+package com.johnson.utilities.exceptions;
+
+public class TooManyRequestsException extends RuntimeException {
+  private final long retryAfterSeconds;
+
+  public TooManyRequestsException(String message, long retryAfterSeconds) {
+    super(message);
+    this.retryAfterSeconds = retryAfterSeconds;
+  }
+
+  public long getRetryAfterSeconds() {
+    return retryAfterSeconds;
+  }
+}